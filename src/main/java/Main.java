@@ -28,6 +28,7 @@ public class Main {
 
         // Create EntityManager and Repositories
         EntityManager em = new EntityManager(dataSource);
+        em.warmUp(entities);
         Repository<Customer> customerRepo = new Repository<>(Customer.class, em);
         Repository<Order> orderRepo = new Repository<>(Order.class, em);
 
@@ -0,0 +1,45 @@
+package demo.model;
+
+import miniORM.annotation.*;
+import miniORM.annotation.Relation.JoinColumn;
+import miniORM.annotation.Relation.ManyToOne;
+
+@Entity
+public class Category {
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue
+    private Long id;
+
+    @Column(name = "name")
+    private String name;
+
+    @ManyToOne
+    @JoinColumn(name = "parent_id")
+    private Category parent;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Category getParent() {
+        return parent;
+    }
+
+    public void setParent(Category parent) {
+        this.parent = parent;
+    }
+}
@@ -6,6 +6,7 @@ import miniORM.annotation.Relation.OneToMany;
 import java.util.List;
 
 @Entity
+@Cacheable(maxEntries = 10_000, ttlSeconds = 600)
 public class Customer {
 
     @Id
@@ -0,0 +1,46 @@
+package demo.model;
+
+import miniORM.annotation.*;
+import miniORM.annotation.Relation.FetchType;
+import miniORM.annotation.Relation.JoinColumn;
+import miniORM.annotation.Relation.ManyToOne;
+
+@Entity
+public class Payment {
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue
+    private Long id;
+
+    @Column(name = "amount")
+    private Double amount;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "customer_id")
+    private Customer customer;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Double amount) {
+        this.amount = amount;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public void setCustomer(Customer customer) {
+        this.customer = customer;
+    }
+}
@@ -0,0 +1,86 @@
+package demo.model;
+
+import miniORM.annotation.*;
+
+@Entity
+public class Reading {
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue
+    private Long id;
+
+    @Column(name = "sensor")
+    private int sensor;
+
+    @Column(name = "recorded_at")
+    private long recordedAt;
+
+    @Column(name = "reading_value")
+    private double value;
+
+    @Column(name = "valid")
+    private boolean valid;
+
+    @Column(name = "battery")
+    private Integer battery;
+
+    @Column(name = "quality")
+    private char quality;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public int getSensor() {
+        return sensor;
+    }
+
+    public void setSensor(int sensor) {
+        this.sensor = sensor;
+    }
+
+    public long getRecordedAt() {
+        return recordedAt;
+    }
+
+    public void setRecordedAt(long recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public void setValue(double value) {
+        this.value = value;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public void setValid(boolean valid) {
+        this.valid = valid;
+    }
+
+    public Integer getBattery() {
+        return battery;
+    }
+
+    public void setBattery(Integer battery) {
+        this.battery = battery;
+    }
+
+    public char getQuality() {
+        return quality;
+    }
+
+    public void setQuality(char quality) {
+        this.quality = quality;
+    }
+}
@@ -0,0 +1,45 @@
+package demo.model;
+
+import miniORM.annotation.*;
+import miniORM.annotation.Relation.JoinColumn;
+import miniORM.annotation.Relation.ManyToOne;
+
+@Entity
+public class Shipment {
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue
+    private Long id;
+
+    @Column(name = "carrier")
+    private String carrier;
+
+    @ManyToOne
+    @JoinColumn(name = "order_id")
+    private Order order;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getCarrier() {
+        return carrier;
+    }
+
+    public void setCarrier(String carrier) {
+        this.carrier = carrier;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public void setOrder(Order order) {
+        this.order = order;
+    }
+}
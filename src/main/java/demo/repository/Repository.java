@@ -2,6 +2,7 @@ package demo.repository;
 
 import miniORM.core.EntityManager;
 
+import java.util.Collection;
 import java.util.List;
 
 public class Repository<T> {
@@ -17,6 +18,10 @@ public class Repository<T> {
         entityManager.save(entity);
     }
 
+    public void saveAll(Collection<T> entities) {
+        entityManager.saveAll(entities);
+    }
+
     public T findById(Object id) {
         return entityManager.findById(clazz, id);
     }
@@ -25,11 +30,33 @@ public class Repository<T> {
         return entityManager.findAll(clazz);
     }
 
+    /**
+     * Returns the zero-based page {@code page} of {@code size} entities ordered by id.
+     */
+    public List<T> findPage(int page, int size) {
+        return entityManager.findPage(clazz, (long) page * size, size);
+    }
+
+    /**
+     * Returns the {@code size} entities following {@code lastId} in id order; null starts at the beginning.
+     */
+    public List<T> findPageAfter(Object lastId, int size) {
+        return entityManager.findPageAfter(clazz, lastId, size);
+    }
+
     public void update(T entity) {
         entityManager.update(entity);
     }
 
+    public void updateAll(Collection<T> entities) {
+        entityManager.updateAll(entities);
+    }
+
     public void delete(Object id) {
         entityManager.delete(clazz, id);
     }
+
+    public void deleteAllById(Collection<?> ids) {
+        entityManager.deleteAllById(clazz, ids);
+    }
 }
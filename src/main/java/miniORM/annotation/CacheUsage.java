@@ -0,0 +1,15 @@
+package miniORM.annotation;
+
+/**
+ * How a {@link Cacheable} entity is kept consistent with the database.
+ */
+public enum CacheUsage {
+    /**
+     * The entity is never updated; {@code update} is rejected so the cache can never be stale.
+     */
+    READ_ONLY,
+    /**
+     * Cached rows are invalidated whenever the entity is saved, updated or deleted.
+     */
+    READ_WRITE
+}
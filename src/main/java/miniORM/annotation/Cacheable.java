@@ -0,0 +1,27 @@
+package miniORM.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Keeps loaded rows of the entity in the second-level cache shared by all entity managers,
+ * so {@code findById} and relation loads can be answered without a query.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cacheable {
+
+    /**
+     * Maximum number of cached rows; the least recently used row is evicted beyond it.
+     */
+    int maxEntries() default 1000;
+
+    /**
+     * Time to live of a cached row in seconds; 0 keeps rows until they are evicted or invalidated.
+     */
+    long ttlSeconds() default 0;
+
+    CacheUsage usage() default CacheUsage.READ_WRITE;
+}
@@ -0,0 +1,15 @@
+package miniORM.annotation.Relation;
+
+/**
+ * When the target of a relation is loaded.
+ */
+public enum FetchType {
+    /**
+     * Loaded together with the owning entity.
+     */
+    EAGER,
+    /**
+     * Loaded on first access.
+     */
+    LAZY
+}
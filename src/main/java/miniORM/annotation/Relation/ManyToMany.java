@@ -9,5 +9,6 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface ManyToMany {
     String mappedBy() default "";
+    FetchType fetch() default FetchType.LAZY;
 }
 
@@ -10,4 +10,5 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface OneToMany {
     String mappedBy() default "";
+    FetchType fetch() default FetchType.LAZY;
 }
@@ -0,0 +1,39 @@
+package miniORM.cache;
+
+/**
+ * Cached rows of one entity class, keyed by id.
+ * <p>
+ * A row is the entity's column values in {@link miniORM.metaData.EntityMetaData#getColumnFields()} order,
+ * with the foreign key in place of each single-valued relation. Rows are shared and must not be modified.
+ * Implementations must be thread-safe and keep their {@link CacheStatistics} up to date.
+ */
+public interface CacheRegion {
+
+    /**
+     * Returns the cached row, or null on a miss.
+     */
+    Object[] get(Object id);
+
+    void put(Object id, Object[] row);
+
+    /**
+     * Caches a row read from the database, unless the id was invalidated (or the region cleared) at or after
+     * {@code loadStartedAt}, a {@link SecondLevelCache#nextTimestamp()} taken before the row was read:
+     * the row may then predate the write, and caching it would outlive the invalidation.
+     */
+    void putFromLoad(Object id, Object[] row, long loadStartedAt);
+
+    /**
+     * Removes the row after a write and records when, for {@link #putFromLoad}; not counted as an eviction.
+     */
+    void invalidate(Object id);
+
+    /**
+     * Removes every row; loads started before are no longer cached.
+     */
+    void clear();
+
+    int size();
+
+    CacheStatistics getStatistics();
+}
@@ -0,0 +1,12 @@
+package miniORM.cache;
+
+import miniORM.annotation.Cacheable;
+
+/**
+ * Creates the region of a {@link Cacheable} entity; the extension point for other eviction policies.
+ */
+@FunctionalInterface
+public interface CacheRegionFactory {
+
+    CacheRegion create(Class<?> entityClass, Cacheable settings);
+}
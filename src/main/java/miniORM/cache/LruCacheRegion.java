@@ -0,0 +1,145 @@
+package miniORM.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Default region: a bounded map in access order that evicts the least recently used row,
+ * and drops rows older than the time to live when they are read.
+ * <p>
+ * The timestamps of the last {@code maxEntries} invalidations are kept for {@link #putFromLoad}; once one is
+ * forgotten, loads started before it are rejected as a whole.
+ */
+public final class LruCacheRegion implements CacheRegion {
+
+    private record Entry(Object[] row, long expiresAt) {
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final CacheStatistics statistics = new CacheStatistics();
+    private final LinkedHashMap<Object, Entry> entries;
+    private final LinkedHashMap<Object, Long> invalidations;
+    // Loads started at or before this may have missed a forgotten invalidation
+    private long invalidatedBefore;
+
+    public LruCacheRegion(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, System::nanoTime);
+    }
+
+    /**
+     * @param ttl       time to live of a row; {@link Duration#ZERO} for no limit
+     * @param nanoClock source of {@link System#nanoTime()}-like timestamps
+     */
+    public LruCacheRegion(int maxEntries, Duration ttl, LongSupplier nanoClock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                if (size() > LruCacheRegion.this.maxEntries) {
+                    statistics.recordEviction();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.invalidations = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Long> eldest) {
+                if (size() > LruCacheRegion.this.maxEntries) {
+                    invalidatedBefore = Math.max(invalidatedBefore, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Object[] get(Object id) {
+        Entry entry = entries.get(id);
+        if (entry != null && isExpired(entry, nanoClock.getAsLong())) {
+            entries.remove(id);
+            statistics.recordEviction();
+            entry = null;
+        }
+
+        if (entry == null) {
+            statistics.recordMiss();
+            return null;
+        }
+        statistics.recordHit();
+        return entry.row();
+    }
+
+    @Override
+    public synchronized void put(Object id, Object[] row) {
+        long now = nanoClock.getAsLong();
+        entries.put(id, new Entry(row, ttlNanos > 0 ? now + ttlNanos : Long.MAX_VALUE));
+        if (ttlNanos > 0 && entries.size() == maxEntries) {
+            purgeExpired(now);
+        }
+    }
+
+    @Override
+    public synchronized void putFromLoad(Object id, Object[] row, long loadStartedAt) {
+        if (loadStartedAt <= invalidatedBefore) {
+            return;
+        }
+        Long invalidatedAt = invalidations.get(id);
+        if (invalidatedAt == null || invalidatedAt < loadStartedAt) {
+            put(id, row);
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(Object id) {
+        entries.remove(id);
+        // Re-inserted, so the map stays ordered by invalidation time
+        invalidations.remove(id);
+        invalidations.put(id, SecondLevelCache.nextTimestamp());
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        invalidations.clear();
+        invalidatedBefore = SecondLevelCache.nextTimestamp();
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Drops expired rows before a full region starts evicting live ones.
+     */
+    private void purgeExpired(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (isExpired(iterator.next(), now)) {
+                iterator.remove();
+                statistics.recordEviction();
+            }
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return entry.expiresAt() != Long.MAX_VALUE && now - entry.expiresAt() >= 0;
+    }
+}
@@ -0,0 +1,81 @@
+package miniORM.cache;
+
+import miniORM.annotation.Cacheable;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of entity rows, with one region per {@link Cacheable} entity class.
+ * Entity managers share {@link #shared()} unless given another instance; entities without
+ * {@code @Cacheable} are never cached.
+ */
+public final class SecondLevelCache {
+
+    private static final SecondLevelCache SHARED = new SecondLevelCache();
+    private static final AtomicLong CLOCK = new AtomicLong();
+
+    private final CacheRegionFactory regionFactory;
+    private final Map<Class<?>, Optional<CacheRegion>> regions = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a cache whose regions are {@link LruCacheRegion}s.
+     */
+    public SecondLevelCache() {
+        this((entityClass, settings) ->
+                new LruCacheRegion(settings.maxEntries(), Duration.ofSeconds(settings.ttlSeconds())));
+    }
+
+    public SecondLevelCache(CacheRegionFactory regionFactory) {
+        this.regionFactory = regionFactory;
+    }
+
+    public static SecondLevelCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns a new value of the process-wide clock that orders loads and invalidations,
+     * see {@link CacheRegion#putFromLoad}.
+     */
+    public static long nextTimestamp() {
+        return CLOCK.incrementAndGet();
+    }
+
+    /**
+     * Returns the region of the entity class, or null if the class is not {@code @Cacheable}.
+     */
+    public CacheRegion getRegion(Class<?> entityClass) {
+        return regions.computeIfAbsent(entityClass, clazz -> {
+            Cacheable settings = clazz.getAnnotation(Cacheable.class);
+            return settings == null ? Optional.empty() : Optional.of(regionFactory.create(clazz, settings));
+        }).orElse(null);
+    }
+
+    /**
+     * Returns the counters of the entity class, or null if the class is not {@code @Cacheable}.
+     */
+    public CacheStatistics getStatistics(Class<?> entityClass) {
+        CacheRegion region = getRegion(entityClass);
+        return region != null ? region.getStatistics() : null;
+    }
+
+    public void invalidate(Class<?> entityClass, Object id) {
+        CacheRegion region = getRegion(entityClass);
+        if (region != null) {
+            region.invalidate(id);
+        }
+    }
+
+    /**
+     * Empties every region, e.g. after the schema has been recreated.
+     */
+    public void clear() {
+        for (Optional<CacheRegion> region : regions.values()) {
+            region.ifPresent(CacheRegion::clear);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package miniORM.core;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Writes queued by a {@link FlushMode#COMMIT} unit of work, coalesced per row:
+ * an inserted entity is written once with its state at flush time, so later updates of it need no statement;
+ * repeated updates of a row become one, written from the instance updated last, even if several instances hold the
+ * row; deleting a queued insert cancels both.
+ * <p>
+ * Pending inserts are tracked by identity, as their id may only be generated at flush; updates and deletes by row.
+ */
+final class ActionQueue {
+
+    // Pending inserts are tracked by identity, in the order they were first queued
+    private record Ref(Object entity) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Ref ref && ref.entity == entity;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(entity);
+        }
+    }
+
+    private record Row(Class<?> entityClass, Object id) {
+    }
+
+    private final Set<Ref> inserts = new LinkedHashSet<>();
+    // The instance to write per row, in the order the rows were first updated
+    private final Map<Row, Object> updates = new LinkedHashMap<>();
+    private final Map<Class<?>, Set<Object>> deletes = new LinkedHashMap<>();
+
+    boolean isEmpty() {
+        return inserts.isEmpty() && updates.isEmpty() && deletes.isEmpty();
+    }
+
+    void insert(Object entity) {
+        updates.values().removeIf(updated -> updated == entity);
+        inserts.add(new Ref(entity));
+    }
+
+    /**
+     * Queues the update of the entity's row, whose id is {@code id}.
+     */
+    void update(Object entity, Object id) {
+        if (!inserts.contains(new Ref(entity))) {
+            updates.put(new Row(entity.getClass(), id), entity);
+        }
+    }
+
+    /**
+     * Queues the delete of a row; {@code idOf} reads the id of a queued entity.
+     */
+    void delete(Class<?> clazz, Object id, Function<Object, Object> idOf) {
+        boolean insertQueued = inserts.removeIf(ref -> matches(ref, clazz, id, idOf));
+        updates.remove(new Row(clazz, id));
+        if (!insertQueued) {
+            deletes.computeIfAbsent(clazz, c -> new LinkedHashSet<>()).add(id);
+        }
+    }
+
+    private static boolean matches(Ref ref, Class<?> clazz, Object id, Function<Object, Object> idOf) {
+        return ref.entity().getClass() == clazz && id.equals(idOf.apply(ref.entity()));
+    }
+
+    boolean hasDelete(Class<?> clazz, Object id) {
+        Set<Object> ids = deletes.get(clazz);
+        return ids != null && ids.contains(id);
+    }
+
+    List<Object> getInserts() {
+        return unwrap(inserts);
+    }
+
+    List<Object> getUpdates() {
+        return new ArrayList<>(updates.values());
+    }
+
+    Map<Class<?>, Set<Object>> getDeletes() {
+        return deletes;
+    }
+
+    void clear() {
+        inserts.clear();
+        updates.clear();
+        deletes.clear();
+    }
+
+    private static List<Object> unwrap(Set<Ref> refs) {
+        List<Object> entities = new ArrayList<>(refs.size());
+        for (Ref ref : refs) {
+            entities.add(ref.entity());
+        }
+        return entities;
+    }
+}
@@ -0,0 +1,155 @@
+package miniORM.core;
+
+import miniORM.exception.OrmException;
+import miniORM.query.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Non-blocking view of an {@link EntityManager}: every operation runs on its own virtual thread and completes a
+ * {@link CompletableFuture}, so many independent lookups can be fanned out without tying up platform threads.
+ * <p>
+ * At most {@link #getMaxConcurrency()} operations touch the database at once; the others wait on a virtual thread
+ * instead of queueing inside the connection pool, where they would time out. The limit defaults to the maximum size
+ * of the pool behind the entity manager.
+ * <p>
+ * Operations run independently of each other, each with its own pooled connection; use
+ * {@link #inTransaction(Function)} for work that must commit as a whole. Thread-safe.
+ */
+public final class AsyncEntityManager implements AutoCloseable {
+
+    private final EntityManager entityManager;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    AsyncEntityManager(EntityManager entityManager, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be positive: " + maxConcurrency);
+        }
+        this.entityManager = entityManager;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Runs arbitrary work against the entity manager asynchronously, holding one permit for its whole duration.
+     */
+    public <R> CompletableFuture<R> submit(Function<EntityManager, R> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(new OrmException("Interrupted while waiting for a connection permit", e));
+            }
+            try {
+                return work.apply(entityManager);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    public <R> CompletableFuture<R> inTransaction(Function<EntityManager, R> work) {
+        return submit(em -> em.inTransaction(work));
+    }
+
+    public <T> CompletableFuture<T> findById(Class<T> clazz, Object id) {
+        return submit(em -> em.findById(clazz, id));
+    }
+
+    public <T> CompletableFuture<T> findById(Class<T> clazz, Object id, FetchMode fetchMode) {
+        return submit(em -> em.findById(clazz, id, fetchMode));
+    }
+
+    public <T> CompletableFuture<List<T>> findAll(Class<T> clazz) {
+        return submit(em -> em.findAll(clazz));
+    }
+
+    public <T> CompletableFuture<List<T>> findAll(Class<T> clazz, FetchMode fetchMode) {
+        return submit(em -> em.findAll(clazz, fetchMode));
+    }
+
+    public <T> CompletableFuture<List<T>> findPage(Class<T> clazz, long offset, int limit) {
+        return submit(em -> em.findPage(clazz, offset, limit));
+    }
+
+    public <T> CompletableFuture<List<T>> findPageAfter(Class<T> clazz, Object lastId, int limit) {
+        return submit(em -> em.findPageAfter(clazz, lastId, limit));
+    }
+
+    public <T> CompletableFuture<List<T>> getResultList(Query<T> query) {
+        return submit(em -> em.getResultList(query));
+    }
+
+    public <T, P> CompletableFuture<List<P>> getResultList(Query<T> query, Class<P> projectionType) {
+        return submit(em -> em.getResultList(query, projectionType));
+    }
+
+    public CompletableFuture<Long> count(Query<?> query) {
+        return submit(em -> em.count(query));
+    }
+
+    public <T> CompletableFuture<Void> save(T entity) {
+        return submit(em -> {
+            em.save(entity);
+            return null;
+        });
+    }
+
+    public <T> CompletableFuture<Void> saveAll(Collection<T> entities) {
+        return submit(em -> {
+            em.saveAll(entities);
+            return null;
+        });
+    }
+
+    public <T> CompletableFuture<Void> update(T entity) {
+        return submit(em -> {
+            em.update(entity);
+            return null;
+        });
+    }
+
+    public <T> CompletableFuture<Void> updateAll(Collection<T> entities) {
+        return submit(em -> {
+            em.updateAll(entities);
+            return null;
+        });
+    }
+
+    public <T> CompletableFuture<Void> delete(Class<T> clazz, Object id) {
+        return submit(em -> {
+            em.delete(clazz, id);
+            return null;
+        });
+    }
+
+    public <T> CompletableFuture<Void> deleteAllById(Class<T> clazz, Collection<?> ids) {
+        return submit(em -> {
+            em.deleteAllById(clazz, ids);
+            return null;
+        });
+    }
+
+    /**
+     * Stops accepting operations and waits for the submitted ones to finish.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -1,271 +1,1578 @@
 package miniORM.core;
 
-import miniORM.annotation.GeneratedValue;
-import miniORM.annotation.Relation.JoinColumn;
-import miniORM.annotation.Relation.ManyToOne;
-import miniORM.annotation.Relation.OneToOne;
+import miniORM.annotation.CacheUsage;
+import miniORM.annotation.Cacheable;
+import miniORM.cache.CacheStatistics;
+import miniORM.cache.CacheRegion;
+import miniORM.cache.SecondLevelCache;
+import miniORM.db.DataSourceProvider;
 import miniORM.exception.OrmDatabaseException;
 import miniORM.exception.OrmException;
 import miniORM.exception.OrmMappingException;
 import miniORM.exception.OrmTransactionException;
+import miniORM.metaData.EntityGraph;
 import miniORM.metaData.EntityMetaData;
+import miniORM.metaData.FieldAccessor;
+import miniORM.query.Projection;
+import miniORM.query.Query;
+import miniORM.query.SqlQuery;
 import miniORM.sql.SQLGenerator;
+import miniORM.sql.StatementKind;
 
 import javax.sql.DataSource;
 import java.lang.reflect.Field;
 import java.sql.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class EntityManager {
 
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_FETCH_SIZE = 500;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+    // Mappings of ad hoc statements (IN lists, criteria queries) push out the least recently used beyond this
+    private static final int MAX_ROW_MAPPINGS = 1024;
+
+    private record RowMappingKey(Class<?> entityClass, String sql, String labelPrefix) {
+    }
+
     private final DataSource dataSource;
-    private final Map<Class<?>, EntityMetaData> metaDataCache = new ConcurrentHashMap<>();
+    private final Map<Class<?>, EntityMetaData> metaDataCache;
+    private final Map<Class<?>, Map<StatementKind, String>> sqlCache;
+    private final Map<Class<?>, Map<Class<?>, Projection<?>>> projectionCache;
+    private final Map<RowMappingKey, RowMapping> rowMappingCache;
+    private final CacheStatistics statementCacheStatistics;
+    // Set only on the entity managers handed out by inSession and inTransaction
+    private final PersistenceContext persistenceContext;
+    // Set only on the entity managers handed out by inTransaction
+    private final UnitOfWork unitOfWork;
+
+    // Volatile, as a root entity manager is shared across threads, e.g. by AsyncEntityManager
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+    private volatile int fetchSize = DEFAULT_FETCH_SIZE;
+    private volatile int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    private volatile SecondLevelCache secondLevelCache = SecondLevelCache.shared();
 
     public EntityManager(DataSource dataSource) {
         this.dataSource = dataSource;
+        this.metaDataCache = new ConcurrentHashMap<>();
+        this.sqlCache = new ConcurrentHashMap<>();
+        this.projectionCache = new ConcurrentHashMap<>();
+        this.rowMappingCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RowMappingKey, RowMapping> eldest) {
+                return size() > MAX_ROW_MAPPINGS;
+            }
+        });
+        this.statementCacheStatistics = new CacheStatistics();
+        this.persistenceContext = null;
+        this.unitOfWork = null;
     }
 
-    private EntityMetaData getMetaData(Class<?> clazz) {
-        return metaDataCache.computeIfAbsent(clazz, EntityMetaData::new);
+    private EntityManager(EntityManager parent, PersistenceContext persistenceContext, UnitOfWork unitOfWork) {
+        this.dataSource = parent.dataSource;
+        this.metaDataCache = parent.metaDataCache;
+        this.sqlCache = parent.sqlCache;
+        this.projectionCache = parent.projectionCache;
+        this.rowMappingCache = parent.rowMappingCache;
+        this.statementCacheStatistics = parent.statementCacheStatistics;
+        this.persistenceContext = persistenceContext;
+        this.unitOfWork = unitOfWork;
+        this.batchSize = parent.batchSize;
+        this.fetchSize = parent.fetchSize;
+        this.statementCacheSize = parent.statementCacheSize;
+        this.secondLevelCache = parent.secondLevelCache;
     }
 
-    public <T> void save(T entity) {
-        EntityMetaData metaData = getMetaData(entity.getClass());
-        Field idField = metaData.getIdField();
-        idField.setAccessible(true);
+    /**
+     * Runs the work in a session: an entity manager whose loads and saves share one persistence context,
+     * so within the session each (entity class, id) is queried at most once and always maps to the same instance.
+     * The session's entity manager is not thread-safe. Calling this inside a session reuses the current one.
+     */
+    public <R> R inSession(Function<EntityManager, R> work) {
+        if (persistenceContext != null) {
+            return work.apply(this);
+        }
+        return work.apply(new EntityManager(this, new PersistenceContext(), null));
+    }
+
+    public void runInSession(Consumer<EntityManager> work) {
+        inSession(em -> {
+            work.accept(em);
+            return null;
+        });
+    }
+
+    /**
+     * Runs the work as one unit of work: every operation of the entity manager passed to it uses the same
+     * connection and transaction, which commits when the work returns and rolls back if it throws.
+     * The entity manager also behaves as a session (see {@link #inSession}); after the work has finished it keeps
+     * the persistence context but goes back to pooled connections, e.g. for lazy loading.
+     * Called inside a session, the transaction shares the session's persistence context; a rollback restores the
+     * entries and snapshots the context had before the transaction. Calling this inside a transaction joins the
+     * current one.
+     */
+    public <R> R inTransaction(Function<EntityManager, R> work) {
+        return inTransaction(FlushMode.IMMEDIATE, work);
+    }
+
+    /**
+     * Runs the work as one unit of work, see {@link #inTransaction(Function)}; with {@link FlushMode#COMMIT}
+     * its writes are queued and sent as batches at commit. A nested call joins the current unit of work and
+     * keeps its flush mode.
+     */
+    public <R> R inTransaction(FlushMode flushMode, Function<EntityManager, R> work) {
+        if (isInTransaction()) {
+            return work.apply(this);
+        }
+
+        try (Connection connection = openConnection()) {
+            UnitOfWork transaction = new UnitOfWork(connection, flushMode);
+            transaction.begin();
+            PersistenceContext context = persistenceContext != null ? persistenceContext : new PersistenceContext();
+            context.beginTransaction(transaction);
+            EntityManager transactional = new EntityManager(this, context, transaction);
+
+            R result;
+            try {
+                result = work.apply(transactional);
+                transactional.flushQueue();
+                transaction.commit(secondLevelCache);
+            } catch (Throwable e) {
+                context.rollbackTransaction();
+                transaction.rollback(e);
+                if (e instanceof SQLException) {
+                    throw new OrmTransactionException("Transaction commit failed", e);
+                }
+                throw e;
+            }
+            context.commitTransaction();
+            return result;
+        } catch (SQLException e) {
+            throw new OrmDatabaseException("Database connection failed", e);
+        }
+    }
+
+    public void runInTransaction(Consumer<EntityManager> work) {
+        runInTransaction(FlushMode.IMMEDIATE, work);
+    }
 
+    public void runInTransaction(FlushMode flushMode, Consumer<EntityManager> work) {
+        inTransaction(flushMode, em -> {
+            work.accept(em);
+            return null;
+        });
+    }
+
+    private boolean isInTransaction() {
+        return unitOfWork != null && unitOfWork.isActive();
+    }
+
+    /**
+     * Returns the unit of work whose connection reads go through: this manager's own, or else the one running on
+     * its persistence context, so lazy loads of a session's entities inside one of its transactions see the
+     * transaction's own writes. Null if there is none.
+     */
+    private UnitOfWork readingUnitOfWork() {
+        if (isInTransaction()) {
+            return unitOfWork;
+        }
+        UnitOfWork running = persistenceContext != null ? persistenceContext.getTransaction() : null;
+        return running != null && running.isActive() ? running : null;
+    }
+
+    private boolean isWriteBehind() {
+        return unitOfWork != null && unitOfWork.isWriteBehind();
+    }
+
+    /**
+     * Executes the writes queued by a {@link FlushMode#COMMIT} unit of work as JDBC batches: inserts with parents
+     * before children, then updates, then deletes with children before parents.
+     */
+    private void flushQueue() {
+        if (!isWriteBehind() || unitOfWork.getActions().isEmpty()) {
+            return;
+        }
+
+        ActionQueue actions = unitOfWork.getActions();
+        List<Object> inserts = actions.getInserts();
+        List<Object> updates = actions.getUpdates();
+        Map<Class<?>, Set<Object>> deletes = new LinkedHashMap<>(actions.getDeletes());
+        actions.clear();
+
+        unitOfWork.setFlushing(true);
         try {
-            Object idValue = idField.get(entity);
+            if (!inserts.isEmpty()) {
+                Map<Class<?>, List<Object>> insertsByClass = groupByClass(inserts);
+                List<Object> ordered = new ArrayList<>(inserts.size());
+                for (Class<?> clazz : EntityGraph.dependencyOrder(insertsByClass.keySet(), this::getMetaData)) {
+                    ordered.addAll(insertsByClass.get(clazz));
+                }
+                saveAll(ordered);
+            }
+            if (!updates.isEmpty()) {
+                updateAll(updates);
+            }
+            List<Class<?>> deleteOrder = new ArrayList<>(EntityGraph.dependencyOrder(deletes.keySet(), this::getMetaData));
+            Collections.reverse(deleteOrder);
+            for (Class<?> clazz : deleteOrder) {
+                deleteAllById(clazz, deletes.get(clazz));
+            }
+        } finally {
+            unitOfWork.setFlushing(false);
+        }
+    }
+
+    @FunctionalInterface
+    private interface TransactionalWork {
+        void execute(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Runs write work on the current unit of work's connection, or else in its own transaction on a pooled connection.
+     */
+    private void inWriteTransaction(String operation, TransactionalWork work) {
+        inWriteTransaction(operation, null, work);
+    }
+
+    /**
+     * Runs write work like {@link #inWriteTransaction(String, TransactionalWork)}; if its own transaction rolls back,
+     * the id resets collected by the work are run. Inside a unit of work, pass {@link #idResets()} instead.
+     */
+    private void inWriteTransaction(String operation, Deque<Runnable> idResets, TransactionalWork work) {
+        if (isInTransaction()) {
+            try {
+                work.execute(unitOfWork.getConnection());
+            } catch (SQLException | RuntimeException e) {
+                throw new OrmTransactionException(operation + " operation failed", e);
+            }
+            return;
+        }
+
+        try (Connection connection = openConnection()) {
+            TransactionManager transactionManager = new TransactionManager(connection);
+            transactionManager.begin();
 
-            if (!idField.isAnnotationPresent(GeneratedValue.class) && idValue == null) {
-                throw new OrmException(
-                        "Primary key value must be set for entity: " + entity.getClass().getSimpleName()
-                );
+            try {
+                work.execute(connection);
+                transactionManager.commit();
+            } catch (Throwable e) {
+                transactionManager.rollback(e);
+                if (idResets != null) {
+                    idResets.forEach(Runnable::run);
+                }
+                if (e instanceof Error error) {
+                    throw error;
+                }
+                throw new OrmTransactionException(operation + " operation failed", e);
             }
-        } catch (IllegalAccessException e) {
-            throw new OrmMappingException("Failed to access id field", e);
+        } catch (SQLException e) {
+            throw new OrmDatabaseException("Database connection failed", e);
+        }
+    }
+
+    /**
+     * Returns where inserts record how to reset the ids they generate: the unit of work's resets, run when it rolls
+     * back, or else new resets for {@link #inWriteTransaction(String, Deque, TransactionalWork)}.
+     */
+    private Deque<Runnable> idResets() {
+        return isInTransaction() ? unitOfWork.getIdResets() : new ArrayDeque<>();
+    }
+
+    /**
+     * Writes the generated id into the entity and records how to restore its previous id.
+     */
+    private void setGeneratedId(EntityMetaData metaData, Object entity, Object id, Deque<Runnable> idResets) {
+        Object previous = metaData.getIdValue(entity);
+        metaData.setIdValue(entity, id);
+        idResets.push(() -> metaData.setIdValue(entity, previous));
+    }
+
+    private RelationFetch newFetch(FetchMode fetchMode) {
+        return new RelationFetch(fetchMode, persistenceContext != null ? persistenceContext : new PersistenceContext());
+    }
+
+    private RelationFetch newFetch(FetchMode fetchMode, long loadStartedAt) {
+        return new RelationFetch(fetchMode, persistenceContext != null ? persistenceContext : new PersistenceContext(),
+                loadStartedAt);
+    }
+
+    public SecondLevelCache getSecondLevelCache() {
+        return secondLevelCache;
+    }
+
+    /**
+     * Replaces the process-wide {@link SecondLevelCache#shared()} cache, e.g. to plug in another eviction policy.
+     */
+    public void setSecondLevelCache(SecondLevelCache secondLevelCache) {
+        this.secondLevelCache = secondLevelCache;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets how many statements the bulk operations send per JDBC batch.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets the JDBC fetch size of streamed queries, which is also how many streamed rows
+     * have their relations resolved together.
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Sets how many prepared statements are kept per physical connection; 0 disables the statement cache.
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("Statement cache size must not be negative: " + statementCacheSize);
+        }
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Hit, miss and eviction counters of the statements this entity manager, its sessions and its transactions
+     * prepared through the statement caches of their connections.
+     */
+    public CacheStatistics getStatementCacheStatistics() {
+        return statementCacheStatistics;
+    }
+
+    /**
+     * Returns an asynchronous view of this entity manager that runs at most as many operations at once
+     * as the connection pool has connections. Close it to release its executor.
+     */
+    public AsyncEntityManager async() {
+        return async(DataSourceProvider.getMaximumPoolSize(dataSource));
+    }
+
+    /**
+     * Returns an asynchronous view of this entity manager that runs at most {@code maxConcurrency} operations at once.
+     * Sessions and transactions are confined to one thread, so only a root entity manager can be used asynchronously.
+     */
+    public AsyncEntityManager async(int maxConcurrency) {
+        if (persistenceContext != null) {
+            throw new OrmException("A session or transaction cannot be used asynchronously");
+        }
+        return new AsyncEntityManager(this, maxConcurrency);
+    }
+
+    /**
+     * Borrows a pooled connection whose statements are prepared through the statement cache.
+     */
+    private Connection openConnection() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            return StatementCache.wrap(connection, statementCacheSize, statementCacheStatistics);
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(connection, e);
+            throw e;
+        }
+    }
+
+    private EntityMetaData getMetaData(Class<?> clazz) {
+        return metaDataCache.computeIfAbsent(clazz, EntityMetaData::new);
+    }
+
+    private String getSql(EntityMetaData metaData, StatementKind kind) {
+        return sqlCache.computeIfAbsent(metaData.getEntityClass(), c -> SQLGenerator.buildStatements(metaData, this::getMetaData))
+                .get(kind);
+    }
+
+    /**
+     * Resolves metadata and generates the CRUD statements of the given entities up front,
+     * so the first request for each entity does not pay for it.
+     */
+    public void warmUp(Collection<Class<?>> entityClasses) {
+        for (Class<?> clazz : entityClasses) {
+            getSql(getMetaData(clazz), StatementKind.INSERT);
         }
+    }
 
-        String sql = SQLGenerator.buildInsertQuery(metaData);
+    public <T> void save(T entity) {
+        T target = LazyProxies.unwrap(entity);
+        EntityMetaData metaData = getMetaData(target.getClass());
+        validatePrimaryKey(target, metaData);
 
-        try (Connection connection = dataSource.getConnection()) {
-            TransactionManager tx = new TransactionManager(connection);
-            tx.begin();
+        if (isWriteBehind()) {
+            queueInsert(metaData, target);
+            return;
+        }
 
-            boolean hasGeneratedValue = metaData.hasGeneratedValue();
+        String sql = getSql(metaData, StatementKind.INSERT);
+        boolean hasGeneratedValue = metaData.hasGeneratedValue();
+        Deque<Runnable> idResets = idResets();
 
+        inWriteTransaction("Save", idResets, connection -> {
             try (PreparedStatement stmt = hasGeneratedValue
                     ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
                     : connection.prepareStatement(sql)) {
 
-                bindInsertParameters(stmt, entity, metaData);
+                bindInsertParameters(stmt, target, metaData);
                 stmt.executeUpdate();
 
                 if (hasGeneratedValue) {
                     try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                         if (generatedKeys.next()) {
-                            Object generatedId = generatedKeys.getObject(1);
-                            idField.set(entity, generatedId);
+                            setGeneratedId(metaData, target, generatedKeys.getObject(1), idResets);
                         }
                     }
                 }
+            }
+        });
+        manage(metaData, target);
+    }
+
+    /**
+     * Inserts all entities in one transaction, sending them as JDBC batches of {@link #getBatchSize()} rows.
+     * Entities are grouped by class in order of first appearance; generated ids are written back to every entity
+     * and reset again if the transaction rolls back.
+     * Entities referencing others of their own class are inserted after them, see {@link EntityGraph#selfReferenceLevels}.
+     */
+    public <T> void saveAll(Collection<T> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        Map<Class<?>, List<T>> entitiesByClass = groupByClass(entities);
+        for (Map.Entry<Class<?>, List<T>> group : entitiesByClass.entrySet()) {
+            EntityMetaData metaData = getMetaData(group.getKey());
+            for (T entity : group.getValue()) {
+                validatePrimaryKey(entity, metaData);
+            }
+        }
+
+        if (isWriteBehind()) {
+            for (Map.Entry<Class<?>, List<T>> group : entitiesByClass.entrySet()) {
+                EntityMetaData metaData = getMetaData(group.getKey());
+                for (T entity : group.getValue()) {
+                    queueInsert(metaData, entity);
+                }
+            }
+            return;
+        }
 
-                tx.commit();
-            } catch (Exception e) {
-                tx.rollback();
-                throw new OrmTransactionException("Save operation failed", e);
+        Deque<Runnable> idResets = idResets();
+        inWriteTransaction("SaveAll", idResets, connection -> {
+            for (Map.Entry<Class<?>, List<T>> group : entitiesByClass.entrySet()) {
+                EntityMetaData metaData = getMetaData(group.getKey());
+                // A referenced entity's generated id is only known once its batch has run
+                for (List<Object> level : EntityGraph.selfReferenceLevels(group.getValue(), metaData)) {
+                    insertBatch(connection, metaData, level, idResets);
+                }
+            }
+        });
+
+        for (Map.Entry<Class<?>, List<T>> group : entitiesByClass.entrySet()) {
+            EntityMetaData metaData = getMetaData(group.getKey());
+            for (T entity : group.getValue()) {
+                manage(metaData, entity);
             }
-        } catch (SQLException e) {
-            throw new OrmDatabaseException("Database connection failed", e);
         }
     }
 
-    private <T> void bindInsertParameters(PreparedStatement stmt, T entity, EntityMetaData metaData)
-            throws SQLException, IllegalAccessException {
-        List<Field> fields = metaData.getColumnFields();
-        int index = 1;
+    private void queueInsert(EntityMetaData metaData, Object entity) {
+        Object id = metaData.getIdValue(entity);
+        // Deletes run after inserts, so re-inserting a deleted id needs the delete to be executed first
+        if (id != null && unitOfWork.getActions().hasDelete(metaData.getEntityClass(), id)) {
+            flushQueue();
+        }
+        unitOfWork.getActions().insert(entity);
+    }
 
-        for (Field field : fields) {
-            if (metaData.isGeneratedValue(field)) {
-                continue;
-            }
+    private <T> void insertBatch(Connection connection, EntityMetaData metaData, List<T> entities,
+                                 Deque<Runnable> idResets) throws SQLException {
+        int batchSize = this.batchSize;
+        String sql = getSql(metaData, StatementKind.INSERT);
+        boolean hasGeneratedValue = metaData.hasGeneratedValue();
 
-            field.setAccessible(true);
-            Object value = field.get(entity);
+        try (PreparedStatement stmt = hasGeneratedValue
+                ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : connection.prepareStatement(sql)) {
 
-            if (field.isAnnotationPresent(ManyToOne.class)) {
-                if (value == null) {
-                    stmt.setObject(index++, null);
-                    continue;
+            for (int start = 0; start < entities.size(); start += batchSize) {
+                List<T> chunk = entities.subList(start, Math.min(start + batchSize, entities.size()));
+
+                for (T entity : chunk) {
+                    bindInsertParameters(stmt, entity, metaData);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+
+                if (hasGeneratedValue) {
+                    try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                        for (T entity : chunk) {
+                            if (!generatedKeys.next()) {
+                                throw new OrmDatabaseException("Driver returned fewer generated keys than inserted rows");
+                            }
+                            setGeneratedId(metaData, entity, generatedKeys.getObject(1), idResets);
+                        }
+                    }
                 }
-                value = getForeignKeyValue(value);
             }
+        }
+    }
+
+    /**
+     * Adds a saved entity to the session's persistence context, if any, and drops any stale cached row.
+     */
+    private void manage(EntityMetaData metaData, Object entity) {
+        if (persistenceContext != null) {
+            persistenceContext.put(metaData.getEntityClass(), metaData.getIdValue(entity), entity);
+        }
+        written(metaData, entity);
+    }
+
+    private void evict(Class<?> clazz, Object id) {
+        if (persistenceContext != null) {
+            persistenceContext.remove(clazz, id);
+        }
+        invalidateCached(clazz, id);
+    }
+
+    /**
+     * Drops a written row from the second-level cache; inside a transaction it is dropped again on commit.
+     */
+    private void invalidateCached(Class<?> clazz, Object id) {
+        secondLevelCache.invalidate(clazz, id);
+        if (isInTransaction()) {
+            unitOfWork.recordWrite(clazz, id);
+        }
+    }
 
-            stmt.setObject(index++, value);
+    /**
+     * Returns the second-level cache region of the class, or null if it is not cached or the current
+     * transaction has written rows of it that other connections cannot see yet.
+     */
+    private CacheRegion cacheRegion(Class<?> clazz) {
+        UnitOfWork transaction = readingUnitOfWork();
+        if (transaction != null && transaction.hasWritten(clazz)) {
+            return null;
+        }
+        return secondLevelCache.getRegion(clazz);
+    }
+
+    private <T> Map<Class<?>, List<T>> groupByClass(Collection<T> entities) {
+        Map<Class<?>, List<T>> groups = new LinkedHashMap<>();
+        for (T entity : entities) {
+            T target = LazyProxies.unwrap(entity);
+            groups.computeIfAbsent(target.getClass(), c -> new ArrayList<>()).add(target);
+        }
+        return groups;
+    }
+
+    private void validatePrimaryKey(Object entity, EntityMetaData metaData) {
+        if (!metaData.isGeneratedValue(metaData.getIdField()) && metaData.getIdValue(entity) == null) {
+            throw new OrmException(
+                    "Primary key value must be set for entity: " + entity.getClass().getSimpleName()
+            );
+        }
+    }
+
+    private <T> void bindInsertParameters(PreparedStatement stmt, T entity, EntityMetaData metaData)
+            throws SQLException {
+        int index = 1;
+
+        for (Field field : metaData.getInsertFields()) {
+            if (metaData.isSingleValuedRelation(field)) {
+                Object value = metaData.getAccessor(field).get(entity);
+                stmt.setObject(index++, value != null ? getForeignKeyValue(value) : null);
+            } else {
+                metaData.getBinder(field).bind(stmt, index++, entity);
+            }
         }
     }
 
     private Object getForeignKeyValue(Object foreignEntity) {
-        EntityMetaData foreignMeta = getMetaData(foreignEntity.getClass());
-        Field idField = foreignMeta.getIdField();
-        idField.setAccessible(true);
+        // Proxies carry their id, so the foreign key is read without loading them
+        EntityMetaData foreignMeta = getMetaData(LazyProxies.entityClassOf(foreignEntity));
         try {
-            return idField.get(foreignEntity);
-        } catch (IllegalAccessException e) {
+            return foreignMeta.getIdValue(foreignEntity);
+        } catch (OrmException e) {
             throw new OrmMappingException("Failed to extract foreign key from related entity", e);
         }
     }
 
 
     public <T> T findById(Class<T> clazz, Object id) {
+        return findById(clazz, id, FetchMode.BATCH);
+    }
+
+    public <T> T findById(Class<T> clazz, Object id, FetchMode fetchMode) {
         EntityMetaData metaData = getMetaData(clazz);
-        String sql = SQLGenerator.buildSelectById(metaData);
+        if (persistenceContext != null) {
+            Object managed = persistenceContext.get(clazz, id);
+            if (managed != null) {
+                return clazz.cast(managed);
+            }
+        }
 
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
+        flushQueue();
+        RelationFetch fetch = newFetch(fetchMode);
 
-            statement.setObject(1, id);
+        try (LazyConnection connection = new LazyConnection()) {
+            T entity = null;
 
-            try (ResultSet rs = statement.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToEntity(rs, clazz, metaData);
+            CacheRegion region = cacheRegion(clazz);
+            Object[] cachedRow = region != null ? region.get(id) : null;
+            if (cachedRow != null) {
+                entity = assemble(clazz, metaData, cachedRow, fetch);
+            } else {
+                String sql = getSql(metaData, fetchMode == FetchMode.JOIN ? StatementKind.JOIN_SELECT_BY_ID : StatementKind.SELECT_BY_ID);
+
+                try (PreparedStatement statement = connection.get().prepareStatement(sql)) {
+                    statement.setObject(1, id);
+
+                    try (ResultSet rs = statement.executeQuery()) {
+                        if (rs.next()) {
+                            entity = mapRow(rs, sql, clazz, metaData, fetch);
+                        }
+                    }
                 }
-                return null;
             }
+
+            resolveRelations(connection, fetch);
+            return entity;
         } catch (SQLException e) {
             throw new OrmDatabaseException("FindById operation failed", e);
-        } catch (ReflectiveOperationException e) {
-            throw new OrmMappingException("FindById operation failed", e);
         }
     }
 
-    private <T> T mapResultSetToEntity(ResultSet rs, Class<T> clazz, EntityMetaData metaData)
-            throws ReflectiveOperationException, SQLException {
+    private <T> T mapRow(ResultSet rs, String sql, Class<T> clazz, EntityMetaData metaData, RelationFetch fetch)
+            throws SQLException {
+        if (fetch.getMode() != FetchMode.JOIN) {
+            return mapResultSetToEntity(rs, rowMapping(rs, sql, metaData, ""), clazz, metaData, fetch);
+        }
+
+        // Map the joined targets first, so the root's relations find them already loaded
+        List<Field> relations = metaData.getEagerSingleValuedRelationFields();
+        for (int i = 0; i < relations.size(); i++) {
+            Class<?> targetClass = relations.get(i).getType();
+            EntityMetaData targetMeta = getMetaData(targetClass);
+            String prefix = SQLGenerator.columnLabel(SQLGenerator.tableAlias(i + 1), "");
+            RowMapping targetMapping = rowMapping(rs, sql, targetMeta, prefix);
+            Object targetId = targetMapping.readId(rs);
+
+            if (targetId != null && fetch.getLoaded(targetClass, targetId) == null) {
+                mapResultSetToEntity(rs, targetMapping, targetClass, targetMeta, fetch);
+            }
+        }
+
+        String rootPrefix = SQLGenerator.columnLabel(SQLGenerator.tableAlias(0), "");
+        return mapResultSetToEntity(rs, rowMapping(rs, sql, metaData, rootPrefix), clazz, metaData, fetch);
+    }
+
+    /**
+     * Returns the mapping of the entity's columns in the results of {@code sql}, building it from the result set's
+     * metadata on first use; {@code labelPrefix} is prepended to every column name.
+     */
+    private RowMapping rowMapping(ResultSet rs, String sql, EntityMetaData metaData, String labelPrefix)
+            throws SQLException {
+        RowMappingKey key = new RowMappingKey(metaData.getEntityClass(), sql, labelPrefix);
+        RowMapping mapping = rowMappingCache.get(key);
+        if (mapping == null) {
+            mapping = RowMapping.create(rs.getMetaData(), metaData, labelPrefix, this::getMetaData);
+            rowMappingCache.put(key, mapping);
+        }
+        return mapping;
+    }
+
+    /**
+     * Maps the current row through the given mapping.
+     */
+    private <T> T mapResultSetToEntity(ResultSet rs, RowMapping mapping, Class<T> clazz, EntityMetaData metaData,
+                                       RelationFetch fetch) throws SQLException {
 
-        T entity = clazz.getDeclaredConstructor().newInstance();
+        Object id = mapping.readId(rs);
+        Object existing = id != null ? fetch.getLoaded(clazz, id) : null;
+        if (existing != null) {
+            return clazz.cast(existing);
+        }
 
-        for (Field field : metaData.getColumnFields()) {
-            field.setAccessible(true);
+        CacheRegion region = cacheRegion(clazz);
+        if (region == null && persistenceContext == null) {
+            // Neither a cache entry nor a snapshot keeps the row, so the columns go straight into the fields
+            return readInto(rs, mapping, clazz, metaData, fetch);
+        }
 
-            if (field.isAnnotationPresent(ManyToOne.class) || field.isAnnotationPresent(OneToOne.class)) {
-                String fkColumn = getForeignKeyColumnName(field, metaData);
-                Object fkValue = rs.getObject(fkColumn);
+        Object[] row = mapping.readRow(rs);
+        if (region != null && id != null) {
+            // A write that committed while the row was read must not be undone by caching it afterwards
+            region.putFromLoad(id, row, fetch.getLoadStartedAt());
+        }
+        return assemble(clazz, metaData, row, fetch);
+    }
 
-                if (fkValue != null) {
-                    Object refEntity = findById(field.getType(), fkValue);
-                    field.set(entity, refEntity);
-                }
+    /**
+     * Builds an entity from its column values, in {@link EntityMetaData#getColumnFields()} order with the
+     * foreign key in place of each single-valued relation, and registers it with the fetch.
+     */
+    private <T> T assemble(Class<T> clazz, EntityMetaData metaData, Object[] row, RelationFetch fetch) {
+        T entity = clazz.cast(metaData.newInstance());
+        List<Field> fields = metaData.getColumnFields();
+        for (int i = 0; i < row.length; i++) {
+            setColumn(entity, metaData, fields.get(i), row[i], fetch);
+        }
+        return register(clazz, entity, metaData, row, fetch);
+    }
+
+    /**
+     * Builds an entity from the current row without collecting its column values, reading primitive columns
+     * without boxing, and registers it with the fetch. Only for rows that are neither cached nor snapshotted.
+     */
+    private <T> T readInto(ResultSet rs, RowMapping mapping, Class<T> clazz, EntityMetaData metaData,
+                           RelationFetch fetch) throws SQLException {
+        T entity = clazz.cast(metaData.newInstance());
+        List<Field> fields = metaData.getColumnFields();
+        for (int i = 0; i < mapping.columnCount(); i++) {
+            if (mapping.readsInto(i)) {
+                mapping.readInto(rs, i, entity);
             } else {
-                String columnName = metaData.getColumnName(field);
-                Object value = rs.getObject(columnName);
-                field.set(entity, value);
+                setColumn(entity, metaData, fields.get(i), mapping.read(rs, i), fetch);
+            }
+        }
+        return register(clazz, entity, metaData, null, fetch);
+    }
+
+    /**
+     * Sets one column field of a new entity; a single-valued relation gets its foreign key resolved
+     * as the relation's fetch strategy and the fetch mode decide.
+     */
+    private void setColumn(Object entity, EntityMetaData metaData, Field field, Object value, RelationFetch fetch) {
+        FieldAccessor accessor = metaData.getAccessor(field);
+
+        if (metaData.isSingleValuedRelation(field)) {
+            if (value != null) {
+                if (metaData.isLazy(field)) {
+                    Object loaded = fetch.getLoaded(field.getType(), value);
+                    accessor.set(entity, loaded != null ? loaded : LazyProxies.create(this, getMetaData(field.getType()), value));
+                } else if (fetch.getMode() == FetchMode.SELECT) {
+                    Object refEntity = findById(field.getType(), value, FetchMode.SELECT);
+                    accessor.set(entity, refEntity);
+                } else {
+                    fetch.defer(entity, accessor, field.getType(), value);
+                }
             }
+        } else {
+            accessor.set(entity, value);
         }
+    }
 
+    /**
+     * Registers a new entity with the fetch and, when there is a row, snapshots it in the persistence context.
+     */
+    private <T> T register(Class<T> clazz, T entity, EntityMetaData metaData, Object[] row, RelationFetch fetch) {
+        fetch.register(clazz, metaData.getIdValue(entity), entity);
+        if (persistenceContext != null && row != null) {
+            persistenceContext.setSnapshot(entity, row);
+        }
+        if (metaData.hasCollectionRelations()) {
+            fetch.addCollectionOwner(clazz, entity);
+        }
         return entity;
     }
 
-    private String getForeignKeyColumnName(Field field, EntityMetaData metaData) {
-        if (field.isAnnotationPresent(JoinColumn.class)) {
-            JoinColumn joinColumn = field.getAnnotation(JoinColumn.class);
-            if (!joinColumn.name().isEmpty()) {
-                return joinColumn.name().toUpperCase();
+    /**
+     * Loads the relations deferred while mapping rows, one chunked IN query per target class and round,
+     * then sets the collections of the loaded entities, until nothing is left to resolve.
+     */
+    private void resolveRelations(LazyConnection connection, RelationFetch fetch) throws SQLException {
+        while (fetch.hasPending() || fetch.hasCollectionOwners()) {
+            while (fetch.hasPending()) {
+                Map<Class<?>, List<Object>> missingKeys = fetch.beginRound();
+
+                for (Map.Entry<Class<?>, List<Object>> entry : missingKeys.entrySet()) {
+                    loadByIds(connection, entry.getKey(), entry.getValue(), fetch);
+                }
+
+                fetch.completeRound();
+            }
+
+            for (Map.Entry<Class<?>, List<Object>> entry : fetch.takeCollectionOwners().entrySet()) {
+                EntityMetaData ownerMeta = getMetaData(entry.getKey());
+
+                for (Field field : ownerMeta.getCollectionRelationFields()) {
+                    if (ownerMeta.isLazy(field)) {
+                        LazyCollections.install(this, ownerMeta, field, entry.getValue());
+                    } else {
+                        Map<Object, List<Object>> elements = loadCollection(connection, ownerMeta, field, entry.getValue(), fetch);
+                        FieldAccessor accessor = ownerMeta.getAccessor(field);
+                        for (Object owner : entry.getValue()) {
+                            List<Object> ownerElements = elements.getOrDefault(ownerMeta.getIdValue(owner), List.of());
+                            accessor.set(owner, LazyCollections.newCollection(field, ownerElements));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a collection relation for many owners with one chunked query and groups the elements by owner id.
+     * {@code @OneToMany} reads the element table by the foreign key named by {@code mappedBy};
+     * {@code @ManyToMany} reads the elements through the join table.
+     */
+    private Map<Object, List<Object>> loadCollection(LazyConnection connection, EntityMetaData ownerMeta, Field field,
+                                                     List<Object> owners, RelationFetch fetch) throws SQLException {
+        int batchSize = this.batchSize;
+        Class<?> elementClass = ownerMeta.getCollectionElementType(field);
+        EntityMetaData elementMeta = getMetaData(elementClass);
+        boolean manyToMany = ownerMeta.isManyToMany(field);
+
+        String keyLabel;
+        if (manyToMany) {
+            keyLabel = SQLGenerator.OWNER_KEY_LABEL;
+        } else {
+            String mappedBy = ownerMeta.getMappedBy(field);
+            if (mappedBy.isEmpty()) {
+                throw new OrmMappingException("@OneToMany field " + field.getName() + " of "
+                        + ownerMeta.getEntityClass().getSimpleName() + " requires mappedBy");
+            }
+            keyLabel = elementMeta.getJoinColumnName(elementMeta.getField(mappedBy));
+        }
+
+        List<Object> ownerIds = new ArrayList<>(owners.size());
+        for (Object owner : owners) {
+            Object ownerId = ownerMeta.getIdValue(owner);
+            if (ownerId != null) {
+                ownerIds.add(ownerId);
+            }
+        }
+
+        Map<Object, List<Object>> elementsByOwner = new HashMap<>();
+        for (int start = 0; start < ownerIds.size(); start += batchSize) {
+            List<Object> chunk = ownerIds.subList(start, Math.min(start + batchSize, ownerIds.size()));
+            String sql = manyToMany
+                    ? SQLGenerator.buildSelectManyToManyQuery(ownerMeta, elementMeta, chunk.size())
+                    : SQLGenerator.buildSelectByForeignKeysQuery(elementMeta, keyLabel, chunk.size());
+
+            try (PreparedStatement statement = connection.get().prepareStatement(sql)) {
+                int index = 1;
+                for (Object ownerId : chunk) {
+                    statement.setObject(index++, ownerId);
+                }
+
+                try (ResultSet rs = statement.executeQuery()) {
+                    RowMapping mapping = rowMapping(rs, sql, elementMeta, "");
+                    int keyIndex = rs.findColumn(keyLabel);
+                    while (rs.next()) {
+                        Object ownerKey = rs.getObject(keyIndex);
+                        Object element = mapResultSetToEntity(rs, mapping, elementClass, elementMeta, fetch);
+                        elementsByOwner.computeIfAbsent(ownerKey, k -> new ArrayList<>()).add(element);
+                    }
+                }
+            }
+        }
+        return elementsByOwner;
+    }
+
+    /**
+     * Loads a lazy collection relation for all owners of one batch, on its own connection.
+     * The owners are registered first, so back-references of the elements point to them.
+     */
+    Map<Object, List<Object>> loadCollectionBatch(EntityMetaData ownerMeta, Field field, List<Object> owners) {
+        RelationFetch fetch = newFetch(FetchMode.BATCH);
+        for (Object owner : owners) {
+            fetch.register(ownerMeta.getEntityClass(), ownerMeta.getIdValue(owner), owner);
+        }
+
+        try (LazyConnection connection = new LazyConnection()) {
+            Map<Object, List<Object>> elements = loadCollection(connection, ownerMeta, field, owners, fetch);
+            resolveRelations(connection, fetch);
+            return elements;
+        } catch (SQLException e) {
+            throw new OrmDatabaseException("Loading collection " + field.getName() + " failed", e);
+        }
+    }
+
+    /**
+     * Loads entities by id, taking those in the second-level cache from it and the rest with chunked IN queries.
+     */
+    private <T> List<T> loadByIds(LazyConnection connection, Class<T> clazz, List<Object> ids, RelationFetch fetch)
+            throws SQLException {
+        int batchSize = this.batchSize;
+        EntityMetaData metaData = getMetaData(clazz);
+        List<T> entities = new ArrayList<>(ids.size());
+
+        CacheRegion region = cacheRegion(clazz);
+        if (region != null) {
+            List<Object> missing = new ArrayList<>();
+            for (Object id : ids) {
+                Object[] cachedRow = region.get(id);
+                if (cachedRow != null) {
+                    entities.add(assemble(clazz, metaData, cachedRow, fetch));
+                } else {
+                    missing.add(id);
+                }
+            }
+            ids = missing;
+        }
+
+        for (int start = 0; start < ids.size(); start += batchSize) {
+            List<Object> chunk = ids.subList(start, Math.min(start + batchSize, ids.size()));
+            String sql = SQLGenerator.buildSelectByIdsQuery(metaData, chunk.size());
+
+            try (PreparedStatement statement = connection.get().prepareStatement(sql)) {
+                int index = 1;
+                for (Object id : chunk) {
+                    statement.setObject(index++, id);
+                }
+
+                try (ResultSet rs = statement.executeQuery()) {
+                    RowMapping mapping = rowMapping(rs, sql, metaData, "");
+                    while (rs.next()) {
+                        entities.add(mapResultSetToEntity(rs, mapping, clazz, metaData, fetch));
+                    }
+                }
             }
         }
-        return field.getName().toUpperCase() + "_ID";
+        return entities;
     }
 
     public <T> List<T> findAll(Class<T> clazz) {
+        return findAll(clazz, FetchMode.BATCH);
+    }
+
+    public <T> List<T> findAll(Class<T> clazz, FetchMode fetchMode) {
+        EntityMetaData metaData = getMetaData(clazz);
+        String sql = getSql(metaData, fetchMode == FetchMode.JOIN ? StatementKind.JOIN_SELECT_ALL : StatementKind.SELECT_ALL);
+        return query(clazz, metaData, sql, fetchMode, "FindAll");
+    }
+
+    /**
+     * Returns one page of entities ordered by id, skipping {@code offset} rows ({@code LIMIT ? OFFSET ?}).
+     * Deep pages get slower as the database still walks the skipped rows; prefer {@link #findPageAfter}.
+     */
+    public <T> List<T> findPage(Class<T> clazz, long offset, int limit) {
+        checkPageArguments(offset, limit);
         EntityMetaData metaData = getMetaData(clazz);
-        String sql = SQLGenerator.buildSelectAllQuery(metaData);
+        return query(clazz, metaData, getSql(metaData, StatementKind.SELECT_PAGE), FetchMode.BATCH, "FindPage",
+                limit, offset);
+    }
+
+    /**
+     * Returns up to {@code limit} entities with an id greater than {@code lastId}, ordered by id (keyset pagination).
+     * Pass null for the first page and the id of the last entity returned for each following page.
+     */
+    public <T> List<T> findPageAfter(Class<T> clazz, Object lastId, int limit) {
+        if (lastId == null) {
+            return findPage(clazz, 0, limit);
+        }
+        checkPageArguments(0, limit);
+        EntityMetaData metaData = getMetaData(clazz);
+        return query(clazz, metaData, getSql(metaData, StatementKind.SELECT_PAGE_AFTER_ID), FetchMode.BATCH, "FindPageAfter",
+                lastId, limit);
+    }
+
+    /**
+     * Starts a query of the entity class whose conditions are evaluated by the database.
+     */
+    public <T> Query<T> createQuery(Class<T> clazz) {
+        return new Query<>(this, clazz);
+    }
+
+    public <T> List<T> getResultList(Query<T> query) {
+        EntityMetaData metaData = getMetaData(query.getEntityClass());
+        SqlQuery sql = query.toSql(metaData, this::getMetaData);
+        return query(query.getEntityClass(), metaData, sql.sql(), FetchMode.BATCH, "Query", sql.parameters().toArray());
+    }
+
+    /**
+     * Runs the query selecting only the columns of the projection, without creating entities or loading relations.
+     */
+    public <T, P> List<P> getResultList(Query<T> query, Class<P> projectionType) {
+        flushQueue();
+        EntityMetaData metaData = getMetaData(query.getEntityClass());
+        Projection<P> projection = getProjection(metaData, projectionType);
+        SqlQuery sql = query.toSql(projection, metaData, this::getMetaData);
+        List<P> resultList = new ArrayList<>();
+
+        try (LazyConnection connection = new LazyConnection();
+             PreparedStatement statement = connection.get().prepareStatement(sql.sql())) {
+            for (int i = 0; i < sql.parameters().size(); i++) {
+                statement.setObject(i + 1, sql.parameters().get(i));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                int columnCount = projection.getColumns().size();
+                while (rs.next()) {
+                    Object[] values = new Object[columnCount];
+                    for (int i = 0; i < columnCount; i++) {
+                        values[i] = rs.getObject(i + 1);
+                    }
+                    resultList.add(projection.map(values));
+                }
+            }
+        } catch (SQLException e) {
+            throw new OrmDatabaseException("Projection query failed", e);
+        }
+        return resultList;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <P> Projection<P> getProjection(EntityMetaData metaData, Class<P> projectionType) {
+        return (Projection<P>) projectionCache.computeIfAbsent(metaData.getEntityClass(), c -> new ConcurrentHashMap<>())
+                .computeIfAbsent(projectionType, type -> Projection.of(metaData, type));
+    }
+
+    public long count(Query<?> query) {
+        flushQueue();
+        SqlQuery sql = query.toCountSql(getMetaData(query.getEntityClass()), this::getMetaData);
+
+        try (LazyConnection connection = new LazyConnection();
+             PreparedStatement statement = connection.get().prepareStatement(sql.sql())) {
+            for (int i = 0; i < sql.parameters().size(); i++) {
+                statement.setObject(i + 1, sql.parameters().get(i));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            throw new OrmDatabaseException("Count operation failed", e);
+        }
+    }
+
+    private static void checkPageArguments(long offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative: " + offset);
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        }
+    }
+
+    /**
+     * Runs a select of the entity's rows with the given parameters and resolves the relations of the result.
+     */
+    private <T> List<T> query(Class<T> clazz, EntityMetaData metaData, String sql, FetchMode fetchMode,
+                              String operation, Object... parameters) {
+        flushQueue();
+        RelationFetch fetch = newFetch(fetchMode);
         List<T> resultList = new ArrayList<>();
 
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql);
-             ResultSet rs = statement.executeQuery()) {
+        try (LazyConnection connection = new LazyConnection()) {
+            try (PreparedStatement statement = connection.get().prepareStatement(sql)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
 
-            while (rs.next()) {
-                resultList.add(mapResultSetToEntity(rs, clazz, metaData));
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        resultList.add(mapRow(rs, sql, clazz, metaData, fetch));
+                    }
+                }
             }
+
+            resolveRelations(connection, fetch);
         } catch (SQLException e) {
-            throw new OrmDatabaseException("FindAll operation failed", e);
-        } catch (ReflectiveOperationException e) {
-            throw new OrmMappingException("FindAll operation failed", e);
+            throw new OrmDatabaseException(operation + " operation failed", e);
         }
         return resultList;
     }
 
+    public <T> Stream<T> stream(Class<T> clazz) {
+        return stream(clazz, FetchMode.BATCH);
+    }
+
+    /**
+     * Streams all entities of the class without materializing the table: the result set stays open and rows are
+     * mapped as the stream is consumed, {@link #getFetchSize()} at a time, with relations resolved per chunk.
+     * Entities are only guaranteed to be shared within a chunk.
+     * <p>
+     * The stream holds a pooled connection until it is exhausted or closed; use it in try-with-resources. It reads
+     * in a transaction, as some drivers (e.g. PostgreSQL) only honor the fetch size outside auto-commit, and loads
+     * relations on a second pooled connection, as drivers that really stream reject other statements on a
+     * connection with an open result set. Inside a unit of work, both run on its connection instead.
+     */
+    public <T> Stream<T> stream(Class<T> clazz, FetchMode fetchMode) {
+        flushQueue();
+        EntityMetaData metaData = getMetaData(clazz);
+        String sql = getSql(metaData, fetchMode == FetchMode.JOIN ? StatementKind.JOIN_SELECT_ALL : StatementKind.SELECT_ALL);
+        LazyConnection connection = new LazyConnection();
+
+        try {
+            Connection jdbcConnection = connection.get();
+            TransactionManager readTransaction = connection.pooled ? new TransactionManager(jdbcConnection) : null;
+            if (readTransaction != null) {
+                readTransaction.begin();
+            }
+            PreparedStatement statement = jdbcConnection.prepareStatement(sql);
+            ResultSetSpliterator<T> spliterator = new ResultSetSpliterator<>(connection, readTransaction, statement, sql,
+                    clazz, metaData, fetchMode);
+            statement.setFetchSize(fetchSize);
+            spliterator.resultSet = statement.executeQuery();
+            return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+        } catch (SQLException e) {
+            closeQuietly(connection, e);
+            throw new OrmDatabaseException("Stream operation failed", e);
+        }
+    }
+
+    /**
+     * Passes every entity of the class to the action, streaming them as {@link #stream(Class)} does.
+     */
+    public <T> void forEach(Class<T> clazz, Consumer<? super T> action) {
+        try (Stream<T> entities = stream(clazz)) {
+            entities.forEach(action);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable resource, Exception cause) {
+        try {
+            resource.close();
+        } catch (Exception e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Writes the entity's columns. Inside a session only the columns changed since the entity was loaded or last
+     * written are updated, and an unchanged entity causes no SQL at all.
+     */
     public <T> void update(T entity) {
-        EntityMetaData metaData = getMetaData(entity.getClass());
-        String sql = SQLGenerator.buildUpdateQuery(metaData);
+        T target = LazyProxies.unwrap(entity);
+        EntityMetaData metaData = getMetaData(target.getClass());
+        checkUpdatable(metaData);
 
-        try (Connection connection = dataSource.getConnection()) {
-            TransactionManager transactionManager = new TransactionManager(connection);
-            transactionManager.begin();
+        if (isWriteBehind()) {
+            unitOfWork.getActions().update(target, metaData.getIdValue(target));
+            return;
+        }
 
+        List<Field> fields = getChangedFields(metaData, target);
+        if (fields.isEmpty()) {
+            return;
+        }
+        String sql = getUpdateSql(metaData, fields);
+
+        inWriteTransaction("Update", connection -> {
             try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                setUpdateParameters(statement, entity, metaData);
+                setUpdateParameters(statement, target, metaData, fields);
                 statement.executeUpdate();
-                transactionManager.commit();
-            } catch (SQLException | IllegalAccessException e) {
-                transactionManager.rollback();
-                throw new OrmTransactionException("Update operation failed", e);
             }
-        } catch (SQLException e) {
-            throw new OrmDatabaseException("Database connection failed", e);
+        });
+        written(metaData, target);
+    }
+
+    /**
+     * Updates all entities in one transaction, sending them as JDBC batches of {@link #getBatchSize()} rows.
+     * Inside a session entities are batched by the set of columns that changed, and unchanged entities are skipped.
+     */
+    public <T> void updateAll(Collection<T> entities) {
+        int batchSize = this.batchSize;
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        Map<Class<?>, List<T>> entitiesByClass = groupByClass(entities);
+        Map<Class<?>, Map<List<Field>, List<T>>> batches = new LinkedHashMap<>();
+        for (Map.Entry<Class<?>, List<T>> group : entitiesByClass.entrySet()) {
+            EntityMetaData metaData = getMetaData(group.getKey());
+            checkUpdatable(metaData);
+
+            if (isWriteBehind()) {
+                for (T entity : group.getValue()) {
+                    unitOfWork.getActions().update(entity, metaData.getIdValue(entity));
+                }
+                continue;
+            }
+
+            for (T entity : group.getValue()) {
+                List<Field> fields = getChangedFields(metaData, entity);
+                if (!fields.isEmpty()) {
+                    batches.computeIfAbsent(group.getKey(), c -> new LinkedHashMap<>())
+                            .computeIfAbsent(fields, f -> new ArrayList<>())
+                            .add(entity);
+                }
+            }
+        }
+        if (batches.isEmpty()) {
+            return;
+        }
+
+        inWriteTransaction("UpdateAll", connection -> {
+            for (Map.Entry<Class<?>, Map<List<Field>, List<T>>> classBatches : batches.entrySet()) {
+                EntityMetaData metaData = getMetaData(classBatches.getKey());
+
+                for (Map.Entry<List<Field>, List<T>> group : classBatches.getValue().entrySet()) {
+                    List<Field> fields = group.getKey();
+
+                    try (PreparedStatement statement = connection.prepareStatement(getUpdateSql(metaData, fields))) {
+                        List<T> batch = group.getValue();
+                        for (int i = 0; i < batch.size(); i++) {
+                            setUpdateParameters(statement, batch.get(i), metaData, fields);
+                            statement.addBatch();
+                            if ((i + 1) % batchSize == 0) {
+                                statement.executeBatch();
+                            }
+                        }
+                        if (batch.size() % batchSize != 0) {
+                            statement.executeBatch();
+                        }
+                    }
+                }
+            }
+        });
+
+        for (Map.Entry<Class<?>, Map<List<Field>, List<T>>> classBatches : batches.entrySet()) {
+            EntityMetaData metaData = getMetaData(classBatches.getKey());
+            for (List<T> group : classBatches.getValue().values()) {
+                for (T entity : group) {
+                    written(metaData, entity);
+                }
+            }
         }
     }
 
-    private <T> void setUpdateParameters(PreparedStatement statement, T entity, EntityMetaData metaData)
-            throws SQLException, IllegalAccessException {
+    /**
+     * Updates every entity of the session whose columns changed since it was loaded or last written,
+     * in one transaction. Does nothing outside a session.
+     */
+    public void flush() {
+        flushQueue();
+        if (persistenceContext == null) {
+            return;
+        }
 
-        List<Field> fields = metaData.getColumnFields();
+        List<Object> dirty = new ArrayList<>();
+        for (Object entity : persistenceContext.getSnapshotEntities()) {
+            if (!getChangedFields(getMetaData(entity.getClass()), entity).isEmpty()) {
+                dirty.add(entity);
+            }
+        }
+        updateAll(dirty);
+    }
+
+    /**
+     * Returns the update fields whose values differ from the entity's snapshot; without a snapshot, all of them.
+     */
+    private List<Field> getChangedFields(EntityMetaData metaData, Object entity) {
+        Object[] snapshot = persistenceContext != null ? persistenceContext.getSnapshot(entity) : null;
+        if (snapshot == null) {
+            return metaData.getUpdateFields();
+        }
+
+        Object[] current = readColumnValues(metaData, entity);
+        List<Field> columnFields = metaData.getColumnFields();
         Field idField = metaData.getIdField();
+        List<Field> changed = new ArrayList<>();
+        for (int i = 0; i < current.length; i++) {
+            Field field = columnFields.get(i);
+            if (!field.equals(idField) && !Objects.equals(current[i], snapshot[i])) {
+                changed.add(field);
+            }
+        }
+        return changed.size() == metaData.getUpdateFields().size() ? metaData.getUpdateFields() : changed;
+    }
+
+    private String getUpdateSql(EntityMetaData metaData, List<Field> fields) {
+        return fields == metaData.getUpdateFields()
+                ? getSql(metaData, StatementKind.UPDATE)
+                : SQLGenerator.buildUpdateQuery(metaData, fields);
+    }
+
+    /**
+     * Returns the entity's column values in {@link EntityMetaData#getColumnFields()} order,
+     * with the foreign key in place of each single-valued relation.
+     */
+    private Object[] readColumnValues(EntityMetaData metaData, Object entity) {
+        List<Field> fields = metaData.getColumnFields();
+        Object[] row = new Object[fields.size()];
+        for (int i = 0; i < row.length; i++) {
+            Field field = fields.get(i);
+            Object value = metaData.getAccessor(field).get(entity);
+            if (value != null && metaData.isSingleValuedRelation(field)) {
+                value = getForeignKeyValue(value);
+            }
+            row[i] = value;
+        }
+        return row;
+    }
+
+    /**
+     * Records that the entity's current state is in the database.
+     */
+    private void written(EntityMetaData metaData, Object entity) {
+        if (persistenceContext != null) {
+            persistenceContext.setSnapshot(entity, readColumnValues(metaData, entity));
+        }
+        invalidateCached(metaData.getEntityClass(), metaData.getIdValue(entity));
+    }
+
+    private void checkUpdatable(EntityMetaData metaData) {
+        Cacheable cacheable = metaData.getEntityClass().getAnnotation(Cacheable.class);
+        if (cacheable != null && cacheable.usage() == CacheUsage.READ_ONLY) {
+            throw new OrmException(metaData.getEntityClass().getSimpleName() + " is cached read-only and cannot be updated");
+        }
+    }
+
+    private <T> void setUpdateParameters(PreparedStatement statement, T entity, EntityMetaData metaData,
+                                         List<Field> fields) throws SQLException {
 
         int paramIndex = 1;
         for (Field field : fields) {
-            if (!field.equals(idField)) {
-                field.setAccessible(true);
-                Object value = field.get(entity);
-
-                if (field.isAnnotationPresent(ManyToOne.class)) {
-                    if (value == null) {
-                        statement.setObject(paramIndex++, null);
-                        continue;
-                    }
-                    value = getForeignKeyValue(value);
-                }
-
-                statement.setObject(paramIndex++, value);
+            if (metaData.isSingleValuedRelation(field)) {
+                Object value = metaData.getAccessor(field).get(entity);
+                statement.setObject(paramIndex++, value != null ? getForeignKeyValue(value) : null);
+            } else {
+                metaData.getBinder(field).bind(statement, paramIndex++, entity);
             }
         }
 
-        idField.setAccessible(true);
-        Object idValue = idField.get(entity);
-        statement.setObject(paramIndex, idValue);
+        metaData.getBinder(metaData.getIdField()).bind(statement, paramIndex, entity);
     }
 
     public <T> void delete(Class<T> clazz, Object id) {
         EntityMetaData metaData = getMetaData(clazz);
-        String sql = SQLGenerator.buildDeleteQuery(metaData);
-
-        try (Connection connection = dataSource.getConnection()) {
-            TransactionManager transactionManager = new TransactionManager(connection);
-            transactionManager.begin();
+        if (isWriteBehind()) {
+            queueDelete(metaData, id);
+            return;
+        }
+        String sql = getSql(metaData, StatementKind.DELETE);
 
+        inWriteTransaction("Delete", connection -> {
             try (PreparedStatement statement = connection.prepareStatement(sql)) {
                 statement.setObject(1, id);
                 statement.executeUpdate();
-                transactionManager.commit();
+            }
+        });
+        evict(clazz, id);
+    }
+
+    /**
+     * Deletes all rows with the given ids in one transaction, as JDBC batches of single-row deletes.
+     */
+    public <T> void deleteAllById(Class<T> clazz, Collection<?> ids) {
+        deleteAllById(clazz, ids, false);
+    }
+
+    /**
+     * Deletes all rows with the given ids in one transaction.
+     *
+     * @param collapseToInClause when true, ids are deleted with {@code DELETE ... WHERE id IN (...)} statements
+     *                           of up to {@link #getBatchSize()} ids each instead of batched single-row deletes
+     */
+    public <T> void deleteAllById(Class<T> clazz, Collection<?> ids, boolean collapseToInClause) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        EntityMetaData metaData = getMetaData(clazz);
+        if (isWriteBehind()) {
+            for (Object id : ids) {
+                queueDelete(metaData, id);
+            }
+            return;
+        }
+        List<?> idList = new ArrayList<>(ids);
+
+        inWriteTransaction("DeleteAllById", connection -> {
+            if (collapseToInClause) {
+                deleteInChunks(connection, metaData, idList);
+            } else {
+                deleteInBatches(connection, metaData, idList);
+            }
+        });
+
+        for (Object id : idList) {
+            evict(clazz, id);
+        }
+    }
+
+    private void queueDelete(EntityMetaData metaData, Object id) {
+        unitOfWork.getActions().delete(metaData.getEntityClass(), id, metaData::getIdValue);
+        // Lookups must not find the entity while its delete is queued
+        if (persistenceContext != null) {
+            persistenceContext.remove(metaData.getEntityClass(), id);
+        }
+    }
+
+    private void deleteInBatches(Connection connection, EntityMetaData metaData, List<?> ids) throws SQLException {
+        int batchSize = this.batchSize;
+        try (PreparedStatement statement = connection.prepareStatement(getSql(metaData, StatementKind.DELETE))) {
+            for (int i = 0; i < ids.size(); i++) {
+                statement.setObject(1, ids.get(i));
+                statement.addBatch();
+                if ((i + 1) % batchSize == 0) {
+                    statement.executeBatch();
+                }
+            }
+            if (ids.size() % batchSize != 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private void deleteInChunks(Connection connection, EntityMetaData metaData, List<?> ids) throws SQLException {
+        int batchSize = this.batchSize;
+        for (int start = 0; start < ids.size(); start += batchSize) {
+            List<?> chunk = ids.subList(start, Math.min(start + batchSize, ids.size()));
+            String sql = SQLGenerator.buildDeleteByIdsQuery(metaData, chunk.size());
+
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int index = 1;
+                for (Object id : chunk) {
+                    statement.setObject(index++, id);
+                }
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Gets a connection on first use, so reads answered entirely from the caches need none: the unit of work's
+     * connection inside a transaction, otherwise a pooled one that is returned on close.
+     */
+    private final class LazyConnection implements AutoCloseable {
+
+        private Connection connection;
+        private boolean pooled;
+
+        Connection get() throws SQLException {
+            if (connection == null) {
+                UnitOfWork transaction = readingUnitOfWork();
+                if (transaction != null) {
+                    connection = transaction.getConnection();
+                } else {
+                    connection = openConnection();
+                    pooled = true;
+                }
+            }
+            return connection;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (pooled) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Maps an open result set chunk by chunk, so memory is bounded by the fetch size and not the table size.
+     */
+    private final class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+        private final LazyConnection connection;
+        // Null inside a unit of work
+        private final TransactionManager readTransaction;
+        // Relations are loaded while the result set is still open
+        private final LazyConnection relationConnection = new LazyConnection();
+        private final PreparedStatement statement;
+        private final String sql;
+        private final Class<T> clazz;
+        private final EntityMetaData metaData;
+        private final FetchMode fetchMode;
+        // Taken before the query runs, as every chunk's rows are read from its result
+        private final long loadStartedAt = SecondLevelCache.nextTimestamp();
+        private final ArrayDeque<T> chunk = new ArrayDeque<>();
+        private ResultSet resultSet;
+        private boolean exhausted;
+        private boolean closed;
+
+        ResultSetSpliterator(LazyConnection connection, TransactionManager readTransaction, PreparedStatement statement,
+                             String sql, Class<T> clazz, EntityMetaData metaData, FetchMode fetchMode) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.connection = connection;
+            this.readTransaction = readTransaction;
+            this.statement = statement;
+            this.sql = sql;
+            this.clazz = clazz;
+            this.metaData = metaData;
+            this.fetchMode = fetchMode;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (chunk.isEmpty() && !exhausted) {
+                readChunk();
+            }
+            T entity = chunk.poll();
+            if (entity == null) {
+                return false;
+            }
+            action.accept(entity);
+            return true;
+        }
+
+        private void readChunk() {
+            if (closed) {
+                throw new OrmException("Stream of " + clazz.getSimpleName() + " has already been closed");
+            }
+            RelationFetch fetch = newFetch(fetchMode, loadStartedAt);
+            try {
+                while (chunk.size() < fetchSize) {
+                    if (!resultSet.next()) {
+                        exhausted = true;
+                        break;
+                    }
+                    chunk.add(mapRow(resultSet, sql, clazz, metaData, fetch));
+                }
+                resolveRelations(relationConnection, fetch);
             } catch (SQLException e) {
-                transactionManager.rollback();
-                throw new OrmTransactionException("Delete operation failed", e);
+                close();
+                throw new OrmDatabaseException("Stream operation failed", e);
+            }
+            if (exhausted) {
+                close();
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try (LazyConnection owned = connection; LazyConnection relations = relationConnection;
+                 PreparedStatement ignored = statement) {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                if (readTransaction != null) {
+                    readTransaction.rollback();
+                }
+            } catch (SQLException e) {
+                throw new OrmDatabaseException("Closing stream failed", e);
             }
-        } catch (SQLException e) {
-            throw new OrmDatabaseException("Database connection failed", e);
         }
     }
 }
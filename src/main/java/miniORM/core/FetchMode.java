@@ -0,0 +1,20 @@
+package miniORM.core;
+
+/**
+ * How {@link EntityManager} resolves {@code @ManyToOne} and {@code @OneToOne} relations while loading entities.
+ */
+public enum FetchMode {
+    /**
+     * One {@code findById} per relation per row.
+     */
+    SELECT,
+    /**
+     * Rows are mapped first; referenced entities are then loaded with chunked {@code WHERE id IN (...)} queries.
+     */
+    BATCH,
+    /**
+     * Relations of the loaded entity are fetched in the same SELECT through LEFT JOINs;
+     * relations of the joined entities are then batch loaded.
+     */
+    JOIN
+}
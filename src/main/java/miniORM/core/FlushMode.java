@@ -0,0 +1,16 @@
+package miniORM.core;
+
+/**
+ * When the writes of a unit of work reach the database.
+ */
+public enum FlushMode {
+    /**
+     * Every save, update and delete is executed when it is called.
+     */
+    IMMEDIATE,
+    /**
+     * Writes are queued and coalesced, then executed as JDBC batches in foreign key order when the unit of work
+     * commits or is flushed. Queries flush the queue first, so they still see the unit of work's own writes.
+     */
+    COMMIT
+}
@@ -0,0 +1,170 @@
+package miniORM.core;
+
+import miniORM.exception.OrmMappingException;
+import miniORM.metaData.EntityMetaData;
+
+import java.lang.reflect.Field;
+import java.util.*;
+
+/**
+ * Collections for {@code @OneToMany} and {@code @ManyToMany} fields.
+ * <p>
+ * Lazy collections of all owners loaded by the same query share one batch: the first access to any of them
+ * loads the elements of every owner in the batch with a single query and fills all the collections.
+ */
+final class LazyCollections {
+
+    private LazyCollections() {
+    }
+
+    /**
+     * Creates a loaded collection matching the declared type of the field.
+     */
+    static Object newCollection(Field field, List<Object> elements) {
+        return isList(field) ? new ArrayList<>(elements) : new LinkedHashSet<>(elements);
+    }
+
+    private static boolean isList(Field field) {
+        Class<?> type = field.getType();
+        if (type.isAssignableFrom(ArrayList.class)) {
+            return true;
+        }
+        if (type.isAssignableFrom(LinkedHashSet.class)) {
+            return false;
+        }
+        throw new OrmMappingException("Unsupported collection type " + type.getName() + " for field " + field.getName()
+                + "; declare it as List, Set or Collection");
+    }
+
+    /**
+     * Sets an unloaded collection on every owner; they are loaded together on first access to any of them.
+     */
+    static void install(EntityManager entityManager, EntityMetaData ownerMeta, Field field, List<Object> owners) {
+        Batch batch = new Batch(entityManager, ownerMeta, field, owners);
+        boolean isList = isList(field);
+
+        for (Object owner : owners) {
+            Loadable collection = isList ? new LazyList<>(batch) : new LazySet<>(batch);
+            batch.collections.put(owner, collection);
+            ownerMeta.getAccessor(field).set(owner, collection);
+        }
+    }
+
+    private interface Loadable {
+        void initialize(List<Object> elements);
+    }
+
+    private static final class Batch {
+
+        private final EntityManager entityManager;
+        private final EntityMetaData ownerMeta;
+        private final Field field;
+        private final List<Object> owners;
+        private final Map<Object, Loadable> collections = new IdentityHashMap<>();
+        private boolean loaded;
+
+        Batch(EntityManager entityManager, EntityMetaData ownerMeta, Field field, List<Object> owners) {
+            this.entityManager = entityManager;
+            this.ownerMeta = ownerMeta;
+            this.field = field;
+            this.owners = List.copyOf(owners);
+        }
+
+        synchronized void load() {
+            if (loaded) {
+                return;
+            }
+            Map<Object, List<Object>> elements = entityManager.loadCollectionBatch(ownerMeta, field, owners);
+            for (Object owner : owners) {
+                collections.get(owner).initialize(elements.getOrDefault(ownerMeta.getIdValue(owner), List.of()));
+            }
+            loaded = true;
+        }
+    }
+
+    private static final class LazyList<E> extends AbstractList<E> implements Loadable {
+
+        private final Batch batch;
+        private volatile List<E> delegate;
+
+        LazyList(Batch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void initialize(List<Object> elements) {
+            delegate = new ArrayList<>((List<E>) elements);
+        }
+
+        private List<E> delegate() {
+            if (delegate == null) {
+                batch.load();
+            }
+            return delegate;
+        }
+
+        @Override
+        public E get(int index) {
+            return delegate().get(index);
+        }
+
+        @Override
+        public int size() {
+            return delegate().size();
+        }
+
+        @Override
+        public E set(int index, E element) {
+            return delegate().set(index, element);
+        }
+
+        @Override
+        public void add(int index, E element) {
+            delegate().add(index, element);
+        }
+
+        @Override
+        public E remove(int index) {
+            return delegate().remove(index);
+        }
+    }
+
+    private static final class LazySet<E> extends AbstractSet<E> implements Loadable {
+
+        private final Batch batch;
+        private volatile Set<E> delegate;
+
+        LazySet(Batch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void initialize(List<Object> elements) {
+            delegate = new LinkedHashSet<>((List<E>) elements);
+        }
+
+        private Set<E> delegate() {
+            if (delegate == null) {
+                batch.load();
+            }
+            return delegate;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return delegate().iterator();
+        }
+
+        @Override
+        public int size() {
+            return delegate().size();
+        }
+
+        @Override
+        public boolean add(E element) {
+            return delegate().add(element);
+        }
+    }
+}
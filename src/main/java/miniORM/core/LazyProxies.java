@@ -0,0 +1,144 @@
+package miniORM.core;
+
+import javassist.util.proxy.MethodHandler;
+import javassist.util.proxy.Proxy;
+import javassist.util.proxy.ProxyFactory;
+import javassist.util.proxy.ProxyObject;
+import miniORM.exception.OrmException;
+import miniORM.exception.OrmMappingException;
+import miniORM.metaData.EntityMetaData;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates and inspects the proxies that stand in for {@code LAZY} relations.
+ * <p>
+ * A proxy is a generated subclass of the entity that only carries the id. Calling the id getter answers
+ * from the proxy; any other method loads the entity through {@link EntityManager#findById} once and delegates to it.
+ */
+public final class LazyProxies {
+
+    private static final Map<Class<?>, Class<?>> proxyClasses = new ConcurrentHashMap<>();
+
+    private LazyProxies() {
+    }
+
+    static Object create(EntityManager entityManager, EntityMetaData metaData, Object id) {
+        Class<?> proxyClass = proxyClasses.computeIfAbsent(metaData.getEntityClass(), LazyProxies::createProxyClass);
+        try {
+            Object proxy = proxyClass.getDeclaredConstructor().newInstance();
+            metaData.setIdValue(proxy, id);
+            ((Proxy) proxy).setHandler(new LazyHandler(entityManager, metaData, id));
+            return proxy;
+        } catch (ReflectiveOperationException e) {
+            throw new OrmMappingException("Cannot create lazy proxy for " + metaData.getEntityClass().getSimpleName(), e);
+        }
+    }
+
+    private static Class<?> createProxyClass(Class<?> entityClass) {
+        ProxyFactory factory = new ProxyFactory();
+        factory.setSuperclass(entityClass);
+        factory.setFilter(method -> !method.getName().equals("finalize"));
+        try {
+            return factory.createClass(MethodHandles.privateLookupIn(entityClass, MethodHandles.lookup()));
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new OrmMappingException("Cannot create lazy proxy class for " + entityClass.getName(), e);
+        }
+    }
+
+    public static boolean isProxy(Object entity) {
+        return handlerOf(entity) != null;
+    }
+
+    /**
+     * Returns true unless the entity is a proxy whose target has not been loaded yet.
+     */
+    public static boolean isInitialized(Object entity) {
+        LazyHandler handler = handlerOf(entity);
+        return handler == null || handler.isInitialized();
+    }
+
+    /**
+     * Returns the loaded entity behind a proxy, loading it if needed; other objects are returned as is.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T unwrap(T entity) {
+        LazyHandler handler = handlerOf(entity);
+        return handler == null ? entity : (T) handler.getTarget();
+    }
+
+    /**
+     * Returns the entity class of an entity or of the entity behind a proxy.
+     */
+    public static Class<?> entityClassOf(Object entity) {
+        LazyHandler handler = handlerOf(entity);
+        return handler == null ? entity.getClass() : handler.metaData.getEntityClass();
+    }
+
+    private static LazyHandler handlerOf(Object entity) {
+        if (entity instanceof ProxyObject proxyObject
+                && proxyObject.getHandler() instanceof LazyHandler handler) {
+            return handler;
+        }
+        return null;
+    }
+
+    private static final class LazyHandler implements MethodHandler {
+
+        private final EntityManager entityManager;
+        private final EntityMetaData metaData;
+        private final Object id;
+        private final String idGetterName;
+        private volatile Object target;
+
+        LazyHandler(EntityManager entityManager, EntityMetaData metaData, Object id) {
+            this.entityManager = entityManager;
+            this.metaData = metaData;
+            this.id = id;
+            String idName = metaData.getIdField().getName();
+            this.idGetterName = "get" + Character.toUpperCase(idName.charAt(0)) + idName.substring(1);
+        }
+
+        boolean isInitialized() {
+            return target != null;
+        }
+
+        Object getTarget() {
+            Object loaded = target;
+            if (loaded == null) {
+                synchronized (this) {
+                    loaded = target;
+                    if (loaded == null) {
+                        loaded = entityManager.findById(metaData.getEntityClass(), id);
+                        if (loaded == null) {
+                            throw new OrmException("Lazy " + metaData.getEntityClass().getSimpleName()
+                                    + " with id " + id + " no longer exists");
+                        }
+                        target = loaded;
+                    }
+                }
+            }
+            return loaded;
+        }
+
+        @Override
+        public Object invoke(Object self, Method thisMethod, Method proceed, Object[] args) throws Throwable {
+            if (args.length == 0 && thisMethod.getName().equals(idGetterName)) {
+                return id;
+            }
+            if (!Modifier.isPublic(thisMethod.getModifiers())) {
+                thisMethod.trySetAccessible();
+            }
+            try {
+                return thisMethod.invoke(getTarget(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
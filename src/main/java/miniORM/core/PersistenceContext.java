@@ -0,0 +1,124 @@
+package miniORM.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * First-level cache of one unit of work: each (entity class, id) maps to the single instance loaded or saved
+ * in it, so repeated lookups are answered without a query and always return the same object.
+ * <p>
+ * Session contexts also keep a snapshot of each entity's column values as last read or written, so updates
+ * can write only the columns that changed since.
+ * <p>
+ * While a transaction runs on the context, every change is journaled, so a rollback can restore the entries and
+ * snapshots the context had before it began.
+ * <p>
+ * Not thread-safe; a context belongs to one session or one load operation.
+ */
+final class PersistenceContext {
+
+    private final Map<Class<?>, Map<Object, Object>> entities = new HashMap<>();
+    private final Map<Object, Object[]> snapshots = new IdentityHashMap<>();
+    // Undo actions of the running transaction, most recent first; null outside transactions
+    private Deque<Runnable> journal;
+    private UnitOfWork transaction;
+
+    void beginTransaction(UnitOfWork transaction) {
+        this.transaction = transaction;
+        journal = new ArrayDeque<>();
+    }
+
+    void commitTransaction() {
+        transaction = null;
+        journal = null;
+    }
+
+    /**
+     * Returns the transaction running on this context, or null.
+     */
+    UnitOfWork getTransaction() {
+        return transaction;
+    }
+
+    /**
+     * Undoes every change made since {@link #beginTransaction()}.
+     */
+    void rollbackTransaction() {
+        Deque<Runnable> undo = journal;
+        transaction = null;
+        journal = null;
+        if (undo != null) {
+            undo.forEach(Runnable::run);
+        }
+    }
+
+    Object get(Class<?> clazz, Object id) {
+        Map<Object, Object> byId = entities.get(clazz);
+        return byId != null ? byId.get(id) : null;
+    }
+
+    /**
+     * Stores the entity unless an instance with the same class and id is already known.
+     */
+    void put(Class<?> clazz, Object id, Object entity) {
+        if (id != null) {
+            Map<Object, Object> byId = entities.computeIfAbsent(clazz, c -> new HashMap<>());
+            if (byId.putIfAbsent(id, entity) == null && journal != null) {
+                journal.push(() -> {
+                    byId.remove(id);
+                    snapshots.remove(entity);
+                });
+            }
+        }
+    }
+
+    void remove(Class<?> clazz, Object id) {
+        Map<Object, Object> byId = entities.get(clazz);
+        if (byId != null) {
+            Object entity = byId.remove(id);
+            if (entity != null) {
+                Object[] snapshot = snapshots.remove(entity);
+                if (journal != null) {
+                    journal.push(() -> {
+                        byId.put(id, entity);
+                        if (snapshot != null) {
+                            snapshots.put(entity, snapshot);
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the column values of the entity as last read or written, or null if it has no snapshot.
+     */
+    Object[] getSnapshot(Object entity) {
+        return snapshots.get(entity);
+    }
+
+    void setSnapshot(Object entity, Object[] row) {
+        Object[] previous = snapshots.put(entity, row);
+        if (journal != null) {
+            journal.push(() -> {
+                if (previous != null) {
+                    snapshots.put(entity, previous);
+                } else {
+                    snapshots.remove(entity);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the entities that have a snapshot, in no particular order.
+     */
+    List<Object> getSnapshotEntities() {
+        return new ArrayList<>(snapshots.keySet());
+    }
+}
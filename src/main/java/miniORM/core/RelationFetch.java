@@ -0,0 +1,131 @@
+package miniORM.core;
+
+import miniORM.cache.SecondLevelCache;
+import miniORM.metaData.FieldAccessor;
+
+import java.util.*;
+
+/**
+ * State of one load operation: the persistence context holding the entities loaded so far, the relation
+ * fields still waiting for their referenced entity, and the loaded entities whose collections are not set yet.
+ */
+final class RelationFetch {
+
+    private record Assignment(Object entity, FieldAccessor accessor) {
+    }
+
+    private final FetchMode mode;
+    private final PersistenceContext context;
+    private final long loadStartedAt;
+    private Map<Class<?>, Map<Object, List<Assignment>>> pending = new LinkedHashMap<>();
+    private Map<Class<?>, Map<Object, List<Assignment>>> inFlight = Map.of();
+    private Map<Class<?>, List<Object>> collectionOwners = new LinkedHashMap<>();
+
+    RelationFetch(FetchMode mode, PersistenceContext context) {
+        this(mode, context, SecondLevelCache.nextTimestamp());
+    }
+
+    /**
+     * @param loadStartedAt a {@link SecondLevelCache#nextTimestamp()} taken before the first query of the operation
+     */
+    RelationFetch(FetchMode mode, PersistenceContext context, long loadStartedAt) {
+        this.mode = mode;
+        this.context = context;
+        this.loadStartedAt = loadStartedAt;
+    }
+
+    FetchMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the timestamp to cache the rows read by the operation with, see {@link miniORM.cache.CacheRegion#putFromLoad}.
+     */
+    long getLoadStartedAt() {
+        return loadStartedAt;
+    }
+
+    void register(Class<?> clazz, Object id, Object entity) {
+        context.put(clazz, id, entity);
+    }
+
+    Object getLoaded(Class<?> clazz, Object id) {
+        return context.get(clazz, id);
+    }
+
+    /**
+     * Sets the relation right away if the referenced entity is already loaded, otherwise queues it.
+     */
+    void defer(Object entity, FieldAccessor accessor, Class<?> targetClass, Object foreignKey) {
+        Object target = getLoaded(targetClass, foreignKey);
+        if (target != null) {
+            accessor.set(entity, target);
+            return;
+        }
+        pending.computeIfAbsent(targetClass, c -> new LinkedHashMap<>())
+                .computeIfAbsent(foreignKey, k -> new ArrayList<>())
+                .add(new Assignment(entity, accessor));
+    }
+
+    boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    void addCollectionOwner(Class<?> clazz, Object entity) {
+        collectionOwners.computeIfAbsent(clazz, c -> new ArrayList<>()).add(entity);
+    }
+
+    boolean hasCollectionOwners() {
+        return !collectionOwners.isEmpty();
+    }
+
+    /**
+     * Returns the entities queued by {@link #addCollectionOwner} since the last call, per class.
+     */
+    Map<Class<?>, List<Object>> takeCollectionOwners() {
+        Map<Class<?>, List<Object>> owners = collectionOwners;
+        collectionOwners = new LinkedHashMap<>();
+        return owners;
+    }
+
+    /**
+     * Takes the queued relations as the current round and returns their foreign keys per target class
+     * that are not loaded yet. Relations discovered while loading the round are queued for the next one.
+     */
+    Map<Class<?>, List<Object>> beginRound() {
+        inFlight = pending;
+        pending = new LinkedHashMap<>();
+
+        Map<Class<?>, List<Object>> missingKeys = new LinkedHashMap<>();
+        for (Map.Entry<Class<?>, Map<Object, List<Assignment>>> entry : inFlight.entrySet()) {
+            List<Object> keys = new ArrayList<>();
+            for (Object key : entry.getValue().keySet()) {
+                if (getLoaded(entry.getKey(), key) == null) {
+                    keys.add(key);
+                }
+            }
+            if (!keys.isEmpty()) {
+                missingKeys.put(entry.getKey(), keys);
+            }
+        }
+        return missingKeys;
+    }
+
+    /**
+     * Wires every relation of the current round to the entity loaded for it.
+     */
+    void completeRound() {
+        for (Map.Entry<Class<?>, Map<Object, List<Assignment>>> entry : inFlight.entrySet()) {
+            for (Map.Entry<Object, List<Assignment>> byKey : entry.getValue().entrySet()) {
+                Object target = getLoaded(entry.getKey(), byKey.getKey());
+                if (target == null) {
+                    continue;
+                }
+                for (Assignment assignment : byKey.getValue()) {
+                    assignment.accessor().set(assignment.entity(), target);
+                }
+            }
+        }
+        inFlight = Map.of();
+    }
+}
@@ -0,0 +1,130 @@
+package miniORM.core;
+
+import miniORM.exception.OrmMappingException;
+import miniORM.metaData.ColumnBinder;
+import miniORM.metaData.ColumnBinder.ValueReader;
+import miniORM.metaData.EntityMetaData;
+
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * How to read one entity from the rows of one statement: the index of every column in the result set and a getter
+ * matching the Java type of its field, resolved once from {@link ResultSetMetaData} so mapping a row involves
+ * neither column name lookups nor driver-side conversions from {@link ResultSet#getObject(int)}.
+ * <p>
+ * When nothing needs the row afterwards, columns can also be read one at a time straight into the entity, primitive
+ * fields with their {@link ColumnBinder} so their values are never boxed.
+ * <p>
+ * Immutable; a mapping is valid for every execution of the statement it was built for.
+ */
+final class RowMapping {
+
+    private final int idIndex;
+    private final ValueReader idReader;
+    private final int[] indexes;
+    private final ValueReader[] readers;
+    // Binders of the primitive column fields, null for the other columns; null if there are none
+    private final ColumnBinder[] primitiveBinders;
+
+    private RowMapping(int idIndex, ValueReader idReader, int[] indexes, ValueReader[] readers,
+                       ColumnBinder[] primitiveBinders) {
+        this.idIndex = idIndex;
+        this.idReader = idReader;
+        this.indexes = indexes;
+        this.readers = readers;
+        this.primitiveBinders = primitiveBinders;
+    }
+
+    /**
+     * Builds the mapping of the entity's columns, each labelled {@code labelPrefix + column name}.
+     * The resolver supplies the metadata of related entities, whose id type decides how foreign keys are read.
+     */
+    static RowMapping create(ResultSetMetaData resultSetMeta, EntityMetaData metaData, String labelPrefix,
+                             Function<Class<?>, EntityMetaData> metaDataResolver) throws SQLException {
+        Map<String, Integer> indexByLabel = new HashMap<>();
+        for (int i = resultSetMeta.getColumnCount(); i >= 1; i--) {
+            // Iterating backwards keeps the first of duplicate labels, as ResultSet#findColumn does
+            indexByLabel.put(resultSetMeta.getColumnLabel(i).toUpperCase(Locale.ROOT), i);
+        }
+
+        List<Field> fields = metaData.getColumnFields();
+        int[] indexes = new int[fields.size()];
+        ValueReader[] readers = new ValueReader[fields.size()];
+        ColumnBinder[] primitiveBinders = null;
+        for (int i = 0; i < indexes.length; i++) {
+            Field field = fields.get(i);
+            boolean relation = metaData.isSingleValuedRelation(field);
+            indexes[i] = indexOf(indexByLabel, labelPrefix + metaData.getMappedColumnName(field), metaData);
+            readers[i] = ColumnBinder.valueReader(relation ? metaDataResolver.apply(field.getType()).getIdField().getType() : field.getType());
+
+            if (!relation && field.getType().isPrimitive()) {
+                if (primitiveBinders == null) {
+                    primitiveBinders = new ColumnBinder[indexes.length];
+                }
+                primitiveBinders[i] = metaData.getBinder(field);
+            }
+        }
+
+        Field idField = metaData.getIdField();
+        int idIndex = indexOf(indexByLabel, labelPrefix + metaData.getIdColumnName(), metaData);
+        return new RowMapping(idIndex, ColumnBinder.valueReader(idField.getType()), indexes, readers, primitiveBinders);
+    }
+
+    Object readId(ResultSet rs) throws SQLException {
+        return idReader.read(rs, idIndex);
+    }
+
+    /**
+     * Reads the column values of the current row, in {@link EntityMetaData#getColumnFields()} order.
+     */
+    Object[] readRow(ResultSet rs) throws SQLException {
+        Object[] row = new Object[indexes.length];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = readers[i].read(rs, indexes[i]);
+        }
+        return row;
+    }
+
+    int columnCount() {
+        return indexes.length;
+    }
+
+    /**
+     * Whether the column at {@code column}, in {@link EntityMetaData#getColumnFields()} order, is read with
+     * {@link #readInto} rather than {@link #read}.
+     */
+    boolean readsInto(int column) {
+        return primitiveBinders != null && primitiveBinders[column] != null;
+    }
+
+    /**
+     * Reads the value of one column of the current row, as {@link #readRow} does.
+     */
+    Object read(ResultSet rs, int column) throws SQLException {
+        return readers[column].read(rs, indexes[column]);
+    }
+
+    /**
+     * Reads one primitive column of the current row straight into the entity's field.
+     */
+    void readInto(ResultSet rs, int column, Object entity) throws SQLException {
+        primitiveBinders[column].read(rs, indexes[column], entity);
+    }
+
+    private static int indexOf(Map<String, Integer> indexByLabel, String label, EntityMetaData metaData) {
+        Integer index = indexByLabel.get(label.toUpperCase(Locale.ROOT));
+        if (index == null) {
+            throw new OrmMappingException("Column " + label + " of " + metaData.getEntityClass().getSimpleName()
+                    + " is missing from the result set");
+        }
+        return index;
+    }
+}
@@ -0,0 +1,167 @@
+package miniORM.core;
+
+import miniORM.cache.CacheStatistics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded LRU cache of prepared statements per physical connection, keyed by SQL.
+ * <p>
+ * The pool closes every statement prepared through a pooled connection when the connection is returned, so the
+ * cached statements are prepared on the physical connection underneath and survive checkouts. {@link #wrap} returns
+ * a view of a pooled connection whose {@code prepareStatement} hands out cached statements; closing such a
+ * statement returns it to the cache. A statement that is still in use, e.g. by an outer query with an open
+ * result set, is never handed out twice: the inner caller gets a fresh uncached statement. Hits, misses and
+ * evictions are counted in the statistics passed to {@link #wrap}, so every entity manager sees its own.
+ * <p>
+ * A physical connection is used by one thread at a time, so a cache needs no locking of its own.
+ */
+final class StatementCache {
+
+    private static final Map<Connection, StatementCache> caches = new ConcurrentHashMap<>();
+
+    private record Key(String sql, int autoGeneratedKeys) {
+    }
+
+    private final class Entry {
+        final PreparedStatement statement;
+        final PreparedStatement view;
+        boolean inUse;
+        boolean evicted;
+
+        Entry(PreparedStatement statement) {
+            this.statement = statement;
+            this.view = (PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                            release(this);
+                            return null;
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+    }
+
+    private final Connection physicalConnection;
+    private volatile int maxSize;
+    // Counters of the connection's current user, set by every prepare
+    private CacheStatistics statistics;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > maxSize) {
+                statistics.recordEviction();
+                discard(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private StatementCache(Connection physicalConnection, int maxSize) {
+        this.physicalConnection = physicalConnection;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns a view of the pooled connection that prepares statements through the cache of its physical connection,
+     * counting them in {@code statistics}, or the connection itself if {@code maxSize} is 0.
+     */
+    static Connection wrap(Connection pooledConnection, int maxSize, CacheStatistics statistics) throws SQLException {
+        if (maxSize == 0) {
+            return pooledConnection;
+        }
+        Connection physicalConnection = pooledConnection.unwrap(Connection.class);
+        StatementCache cache = caches.get(physicalConnection);
+        if (cache == null) {
+            // A new physical connection usually replaces one the pool has retired
+            caches.entrySet().removeIf(entry -> isClosed(entry.getKey()));
+            cache = caches.computeIfAbsent(physicalConnection, c -> new StatementCache(c, maxSize));
+        }
+        cache.maxSize = maxSize;
+
+        StatementCache statementCache = cache;
+        return (Connection) Proxy.newProxyInstance(StatementCache.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement") && isCacheable(method)) {
+                        int autoGeneratedKeys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                        return statementCache.prepare((String) args[0], autoGeneratedKeys, statistics);
+                    }
+                    return invoke(pooledConnection, method, args);
+                });
+    }
+
+    private PreparedStatement prepare(String sql, int autoGeneratedKeys, CacheStatistics statistics) throws SQLException {
+        this.statistics = statistics;
+        Key key = new Key(sql, autoGeneratedKeys);
+        Entry entry = entries.get(key);
+
+        if (entry != null && !entry.inUse && !entry.statement.isClosed()) {
+            statistics.recordHit();
+            entry.statement.clearParameters();
+            entry.inUse = true;
+            return entry.view;
+        }
+
+        statistics.recordMiss();
+        if (entry != null && entry.inUse) {
+            return physicalConnection.prepareStatement(sql, autoGeneratedKeys);
+        }
+
+        entry = new Entry(physicalConnection.prepareStatement(sql, autoGeneratedKeys));
+        entry.inUse = true;
+        entries.put(key, entry);
+        return entry.view;
+    }
+
+    private void release(Entry entry) throws SQLException {
+        entry.inUse = false;
+        if (entry.evicted) {
+            entry.statement.close();
+        }
+    }
+
+    private void discard(Entry entry) {
+        entry.evicted = true;
+        if (!entry.inUse) {
+            try {
+                entry.statement.close();
+            } catch (SQLException ignored) {
+                // The statement is unusable either way
+            }
+        }
+    }
+
+    /**
+     * Only {@code prepareStatement(String)} and {@code prepareStatement(String, int autoGeneratedKeys)} are cached.
+     */
+    private static boolean isCacheable(Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        return parameterTypes.length == 1 || parameterTypes.length == 2 && parameterTypes[1] == int.class;
+    }
+
+    private static boolean isClosed(Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
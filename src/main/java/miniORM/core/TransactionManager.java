@@ -3,23 +3,54 @@ package miniORM.core;
 import java.sql.Connection;
 import java.sql.SQLException;
 
+/**
+ * Demarcates a transaction on one connection and hands the connection back in the auto-commit mode it had.
+ * <p>
+ * Statements may be prepared on the physical connection underneath a pooled one (see {@link StatementCache}),
+ * so the pool cannot tell that the connection has uncommitted work and would commit it when it resets auto-commit.
+ * A failed transaction is therefore always rolled back here, and a connection that cannot be rolled back is closed.
+ */
 public class TransactionManager {
 
     private final Connection connection;
+    private boolean previousAutoCommit = true;
 
     public TransactionManager(Connection connection) {
         this.connection = connection;
     }
 
     public void begin() throws SQLException {
+        previousAutoCommit = connection.getAutoCommit();
         connection.setAutoCommit(false);
     }
 
+    /**
+     * Commits and restores the auto-commit mode found by {@link #begin()}.
+     */
     public void commit() throws SQLException {
         connection.commit();
+        connection.setAutoCommit(previousAutoCommit);
     }
 
     public void rollback() throws SQLException {
         connection.rollback();
+        connection.setAutoCommit(previousAutoCommit);
+    }
+
+    /**
+     * Rolls back after {@code cause}, adding any failure to it as suppressed. If the rollback fails, the physical
+     * connection is closed, so the pool discards it instead of committing the pending work.
+     */
+    public void rollback(Throwable cause) {
+        try {
+            rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+            try {
+                connection.unwrap(Connection.class).close();
+            } catch (SQLException closeFailure) {
+                cause.addSuppressed(closeFailure);
+            }
+        }
     }
 }
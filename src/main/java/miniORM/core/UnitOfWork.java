@@ -0,0 +1,103 @@
+package miniORM.core;
+
+import miniORM.cache.SecondLevelCache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The connection and transaction shared by every operation of one {@code inTransaction} call.
+ * <p>
+ * Rows written in the transaction are not visible to other connections until it commits, so they are kept out of
+ * the second-level cache while it runs and invalidated again once it has committed. Ids generated by its inserts are
+ * reset if it rolls back, so the entities can be saved again.
+ */
+final class UnitOfWork {
+
+    private final Connection connection;
+    private final TransactionManager transactionManager;
+    private final Map<Class<?>, Set<Object>> writtenIds = new HashMap<>();
+    // Restore the ids entities had before their insert, most recent first
+    private final Deque<Runnable> idResets = new ArrayDeque<>();
+    // Null unless the writes are flushed at commit
+    private final ActionQueue actions;
+    private boolean active;
+    private boolean flushing;
+
+    UnitOfWork(Connection connection, FlushMode flushMode) {
+        this.connection = connection;
+        this.transactionManager = new TransactionManager(connection);
+        this.actions = flushMode == FlushMode.COMMIT ? new ActionQueue() : null;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    ActionQueue getActions() {
+        return actions;
+    }
+
+    /**
+     * Returns true if writes are to be queued rather than executed, i.e. the queue exists and is not being flushed.
+     */
+    boolean isWriteBehind() {
+        return active && actions != null && !flushing;
+    }
+
+    void setFlushing(boolean flushing) {
+        this.flushing = flushing;
+    }
+
+    void begin() throws SQLException {
+        transactionManager.begin();
+        active = true;
+    }
+
+    void commit(SecondLevelCache secondLevelCache) throws SQLException {
+        transactionManager.commit();
+        active = false;
+        for (Map.Entry<Class<?>, Set<Object>> entry : writtenIds.entrySet()) {
+            for (Object id : entry.getValue()) {
+                secondLevelCache.invalidate(entry.getKey(), id);
+            }
+        }
+    }
+
+    /**
+     * Rolls back after {@code cause}, see {@link TransactionManager#rollback(Throwable)}.
+     */
+    void rollback(Throwable cause) {
+        active = false;
+        transactionManager.rollback(cause);
+        idResets.forEach(Runnable::run);
+    }
+
+    /**
+     * Returns the resets of the ids generated in the transaction, run if it rolls back.
+     */
+    Deque<Runnable> getIdResets() {
+        return idResets;
+    }
+
+    void recordWrite(Class<?> clazz, Object id) {
+        writtenIds.computeIfAbsent(clazz, c -> new LinkedHashSet<>()).add(id);
+    }
+
+    /**
+     * Returns true if the transaction has written rows of the class, whose cached state may no longer apply to it.
+     */
+    boolean hasWritten(Class<?> clazz) {
+        return writtenIds.containsKey(clazz);
+    }
+}
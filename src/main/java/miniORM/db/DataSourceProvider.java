@@ -2,31 +2,62 @@ package miniORM.db;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
 public class DataSourceProvider {
-    private static final HikariDataSource dataSource;
 
-    static {
+    /**
+     * Size of the default pool, also assumed as the connection limit of data sources that are not Hikari pools.
+     */
+    public static final int DEFAULT_MAXIMUM_POOL_SIZE = 10;
+
+    // The default pool is opened on first use, so the helpers of this class open no pool by themselves
+    private static final class DefaultPool {
+        static final HikariDataSource dataSource = createDataSource();
+    }
+
+    private static volatile boolean created;
+
+    private static HikariDataSource createDataSource() {
         HikariConfig config = new HikariConfig();
         config.setJdbcUrl("jdbc:h2:./testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=false");
         config.setUsername("sa");
         config.setPassword("");
         config.setDriverClassName("org.h2.Driver");
 
-        config.setMaximumPoolSize(10);
+        config.setMaximumPoolSize(DEFAULT_MAXIMUM_POOL_SIZE);
         config.setConnectionTimeout(30000);
         config.setIdleTimeout(600000);
         config.setMaxLifetime(1800000);
 
-        dataSource = new HikariDataSource(config);
+        HikariDataSource dataSource = new HikariDataSource(config);
+        created = true;
+        return dataSource;
     }
 
     public static HikariDataSource getDataSource() {
-        return dataSource;
+        return DefaultPool.dataSource;
+    }
+
+    /**
+     * Returns the maximum number of connections of the given data source: its own limit if it is a Hikari pool,
+     * otherwise {@link #DEFAULT_MAXIMUM_POOL_SIZE}.
+     */
+    public static int getMaximumPoolSize(DataSource source) {
+        try {
+            if (source.isWrapperFor(HikariDataSource.class)) {
+                return source.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            // Not a Hikari pool after all
+        }
+        return DEFAULT_MAXIMUM_POOL_SIZE;
     }
 
     public static void closeDataSource() {
-        if (dataSource != null && !dataSource.isClosed()) {
-            dataSource.close();
+        if (created && !DefaultPool.dataSource.isClosed()) {
+            DefaultPool.dataSource.close();
         }
     }
 }
@@ -0,0 +1,255 @@
+package miniORM.metaData;
+
+import miniORM.exception.OrmMappingException;
+import miniORM.schemaGenerator.SqlTypeMapper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Moves the value of one column field between an entity and JDBC with the setter and getter of its
+ * {@link SqlTypeMapper} type ({@code setLong}/{@code getLong}, {@code setString}/{@code getString}, ...).
+ * <p>
+ * Primitive fields are accessed through method handles of their own type, so binding a parameter or reading a
+ * column never boxes the value. Other fields are read with the getter of {@link #valueReader} and bind NULL with
+ * {@code setNull} and their type code; types without a dedicated setter fall back to {@code setObject}. Entities with a generated {@link EntityMapper}
+ * are bound by the mapper's code for the same setters and getters.
+ */
+public final class ColumnBinder {
+
+    @FunctionalInterface
+    private interface Binding {
+        void bind(PreparedStatement statement, int index, Object entity) throws Throwable;
+    }
+
+    @FunctionalInterface
+    private interface Reading {
+        void read(ResultSet rs, int index, Object entity) throws Throwable;
+    }
+
+    /**
+     * Reads the value of one column of the current row as the Java type of a field.
+     */
+    @FunctionalInterface
+    public interface ValueReader {
+        Object read(ResultSet rs, int index) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface ValueSetter {
+        void set(PreparedStatement statement, int index, Object value) throws SQLException;
+    }
+
+    private final Field field;
+    private final Binding binding;
+    private final Reading reading;
+
+    private ColumnBinder(Field field, Binding binding, Reading reading) {
+        this.field = field;
+        this.binding = binding;
+        this.reading = reading;
+    }
+
+    static ColumnBinder forField(Field field, FieldAccessor accessor, MethodHandles.Lookup lookup) {
+        Class<?> type = field.getType();
+        return type.isPrimitive() ? forPrimitive(field, lookup) : forObject(field, accessor);
+    }
+
+    static ColumnBinder forMapper(Field field, EntityMapper<Object> mapper, int mapperIndex) {
+        return new ColumnBinder(field,
+                (s, i, e) -> mapper.bind(s, i, e, mapperIndex),
+                (rs, i, e) -> mapper.read(rs, i, e, mapperIndex));
+    }
+
+    /**
+     * Binds the field's value of the entity to the statement parameter at {@code index}.
+     */
+    public void bind(PreparedStatement statement, int index, Object entity) throws SQLException {
+        try {
+            binding.bind(statement, index, entity);
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new OrmMappingException("Cannot read field " + field.getName() + " of " + field.getDeclaringClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Reads the column at {@code index} of the current row into the entity's field; SQL NULL sets a primitive to 0.
+     */
+    public void read(ResultSet rs, int index, Object entity) throws SQLException {
+        try {
+            reading.read(rs, index, entity);
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new OrmMappingException("Cannot write field " + field.getName() + " of " + field.getDeclaringClass().getSimpleName(), e);
+        }
+    }
+
+    private static ColumnBinder forPrimitive(Field field, MethodHandles.Lookup lookup) {
+        Class<?> type = field.getType();
+        MethodHandle getter;
+        MethodHandle setter;
+        try {
+            getter = lookup.unreflectGetter(field).asType(MethodType.methodType(type, Object.class));
+            setter = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, type));
+        } catch (IllegalAccessException e) {
+            throw new OrmMappingException("Cannot create binder for field " + field.getName(), e);
+        }
+
+        if (type == long.class) {
+            return new ColumnBinder(field,
+                    (s, i, e) -> s.setLong(i, (long) getter.invokeExact(e)),
+                    (rs, i, e) -> {
+                        setter.invokeExact(e, rs.getLong(i));
+                    });
+        }
+        if (type == int.class) {
+            return new ColumnBinder(field,
+                    (s, i, e) -> s.setInt(i, (int) getter.invokeExact(e)),
+                    (rs, i, e) -> {
+                        setter.invokeExact(e, rs.getInt(i));
+                    });
+        }
+        if (type == double.class) {
+            return new ColumnBinder(field,
+                    (s, i, e) -> s.setDouble(i, (double) getter.invokeExact(e)),
+                    (rs, i, e) -> {
+                        setter.invokeExact(e, rs.getDouble(i));
+                    });
+        }
+        if (type == boolean.class) {
+            return new ColumnBinder(field,
+                    (s, i, e) -> s.setBoolean(i, (boolean) getter.invokeExact(e)),
+                    (rs, i, e) -> {
+                        setter.invokeExact(e, rs.getBoolean(i));
+                    });
+        }
+        if (type == float.class) {
+            return new ColumnBinder(field,
+                    (s, i, e) -> s.setFloat(i, (float) getter.invokeExact(e)),
+                    (rs, i, e) -> {
+                        setter.invokeExact(e, rs.getFloat(i));
+                    });
+        }
+        if (type == short.class) {
+            return new ColumnBinder(field,
+                    (s, i, e) -> s.setShort(i, (short) getter.invokeExact(e)),
+                    (rs, i, e) -> {
+                        setter.invokeExact(e, rs.getShort(i));
+                    });
+        }
+        if (type == byte.class) {
+            return new ColumnBinder(field,
+                    (s, i, e) -> s.setByte(i, (byte) getter.invokeExact(e)),
+                    (rs, i, e) -> {
+                        setter.invokeExact(e, rs.getByte(i));
+                    });
+        }
+        if (type == char.class) {
+            return new ColumnBinder(field,
+                    (s, i, e) -> s.setString(i, String.valueOf((char) getter.invokeExact(e))),
+                    (rs, i, e) -> {
+                        String value = rs.getString(i);
+                        setter.invokeExact(e, value != null && !value.isEmpty() ? value.charAt(0) : '\0');
+                    });
+        }
+        throw new OrmMappingException("Unsupported primitive type " + type + " of field " + field.getName());
+    }
+
+    private static ColumnBinder forObject(Field field, FieldAccessor accessor) {
+        Class<?> type = field.getType();
+        ValueSetter setter = valueSetter(type);
+
+        Binding binding;
+        if (setter == null) {
+            binding = (s, i, e) -> s.setObject(i, accessor.get(e));
+        } else {
+            int sqlType = SqlTypeMapper.mapJavaTypeToJdbcType(type);
+            binding = (s, i, e) -> {
+                Object value = accessor.get(e);
+                if (value == null) {
+                    s.setNull(i, sqlType);
+                } else {
+                    setter.set(s, i, value);
+                }
+            };
+        }
+        ValueReader reader = valueReader(type);
+        return new ColumnBinder(field, binding, (rs, i, e) -> accessor.set(e, reader.read(rs, i)));
+    }
+
+    private static ValueSetter valueSetter(Class<?> type) {
+        if (type == String.class) return (s, i, v) -> s.setString(i, (String) v);
+        if (type == Long.class) return (s, i, v) -> s.setLong(i, (Long) v);
+        if (type == Integer.class) return (s, i, v) -> s.setInt(i, (Integer) v);
+        if (type == Double.class) return (s, i, v) -> s.setDouble(i, (Double) v);
+        if (type == Boolean.class) return (s, i, v) -> s.setBoolean(i, (Boolean) v);
+        if (type == Float.class) return (s, i, v) -> s.setFloat(i, (Float) v);
+        if (type == Short.class) return (s, i, v) -> s.setShort(i, (Short) v);
+        if (type == Byte.class) return (s, i, v) -> s.setByte(i, (Byte) v);
+        if (type == Character.class) return (s, i, v) -> s.setString(i, String.valueOf((char) (Character) v));
+        if (type == BigDecimal.class) return (s, i, v) -> s.setBigDecimal(i, (BigDecimal) v);
+        return null;
+    }
+
+    /**
+     * Returns the getter matching a field of the given Java type: its primitive getter, which maps SQL NULL to null
+     * for wrapper types, {@code getString} for {@code char}, and {@code getObject} for other types.
+     */
+    public static ValueReader valueReader(Class<?> type) {
+        if (type == String.class) return ResultSet::getString;
+        if (type == long.class) return ResultSet::getLong;
+        if (type == int.class) return ResultSet::getInt;
+        if (type == boolean.class) return ResultSet::getBoolean;
+        if (type == double.class) return ResultSet::getDouble;
+        if (type == float.class) return ResultSet::getFloat;
+        if (type == short.class) return ResultSet::getShort;
+        if (type == byte.class) return ResultSet::getByte;
+        if (type == char.class) return (rs, index) -> firstChar(rs.getString(index), '\0');
+        if (type == Long.class) return nullable(ResultSet::getLong);
+        if (type == Integer.class) return nullable(ResultSet::getInt);
+        if (type == Boolean.class) return nullable(ResultSet::getBoolean);
+        if (type == Double.class) return nullable(ResultSet::getDouble);
+        if (type == Float.class) return nullable(ResultSet::getFloat);
+        if (type == Short.class) return nullable(ResultSet::getShort);
+        if (type == Byte.class) return nullable(ResultSet::getByte);
+        if (type == Character.class) return (rs, index) -> firstChar(rs.getString(index), null);
+        if (type == BigDecimal.class) return ResultSet::getBigDecimal;
+        if (type == LocalDate.class || type == LocalDateTime.class || type == LocalTime.class || type == UUID.class) {
+            return (rs, index) -> rs.getObject(index, type);
+        }
+        return ResultSet::getObject;
+    }
+
+    /**
+     * Returns the first character of a CHAR(1) value, {@code ifNull} for SQL NULL and {@code '\0'} for an empty string.
+     */
+    private static Character firstChar(String value, Character ifNull) {
+        if (value == null) {
+            return ifNull;
+        }
+        return value.isEmpty() ? '\0' : value.charAt(0);
+    }
+
+    /**
+     * Adapts a primitive getter to a wrapper field, which must get null rather than 0 for SQL NULL.
+     */
+    private static ValueReader nullable(ValueReader reader) {
+        return (rs, index) -> {
+            Object value = reader.read(rs, index);
+            return rs.wasNull() ? null : value;
+        };
+    }
+}
@@ -0,0 +1,126 @@
+package miniORM.metaData;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Foreign key dependencies between entity classes, and between entities of one class, from their
+ * {@code @ManyToOne} and {@code @OneToOne} fields.
+ */
+public final class EntityGraph {
+
+    private EntityGraph() {
+    }
+
+    /**
+     * Sorts the classes into levels so that every class comes after the classes it references:
+     * level 0 references none of the given classes, level n only classes of lower levels.
+     * Classes within a level do not depend on each other. References to classes outside the collection and
+     * self-references are ignored; classes on a reference cycle end up together in a final level.
+     */
+    public static List<List<Class<?>>> dependencyLevels(Collection<Class<?>> classes,
+                                                        Function<Class<?>, EntityMetaData> metaDataResolver) {
+        Map<Class<?>, Set<Class<?>>> remaining = new LinkedHashMap<>();
+        for (Class<?> clazz : classes) {
+            remaining.put(clazz, new LinkedHashSet<>());
+        }
+        for (Class<?> clazz : remaining.keySet()) {
+            for (Field field : metaDataResolver.apply(clazz).getSingleValuedRelationFields()) {
+                Class<?> target = field.getType();
+                if (target != clazz && remaining.containsKey(target)) {
+                    remaining.get(clazz).add(target);
+                }
+            }
+        }
+
+        List<List<Class<?>>> levels = new ArrayList<>();
+        while (!remaining.isEmpty()) {
+            List<Class<?>> level = new ArrayList<>();
+            for (Map.Entry<Class<?>, Set<Class<?>>> entry : remaining.entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    level.add(entry.getKey());
+                }
+            }
+
+            if (level.isEmpty()) {
+                levels.add(List.copyOf(remaining.keySet()));
+                break;
+            }
+            for (Class<?> clazz : level) {
+                remaining.remove(clazz);
+            }
+            for (Set<Class<?>> dependencies : remaining.values()) {
+                level.forEach(dependencies::remove);
+            }
+            levels.add(List.copyOf(level));
+        }
+        return levels;
+    }
+
+    /**
+     * Sorts entities of one class into levels along their self-references, e.g. a category's parent category:
+     * level 0 references none of the given entities, level n only entities of lower levels. Entities on a reference
+     * cycle end up together in a final level. Without self-referencing fields the result is a single level.
+     */
+    public static List<List<Object>> selfReferenceLevels(List<?> entities, EntityMetaData metaData) {
+        List<FieldAccessor> selfReferences = new ArrayList<>();
+        for (Field field : metaData.getSingleValuedRelationFields()) {
+            if (field.getType() == metaData.getEntityClass()) {
+                selfReferences.add(metaData.getAccessor(field));
+            }
+        }
+        if (selfReferences.isEmpty() || entities.size() < 2) {
+            return List.of(List.copyOf(entities));
+        }
+
+        Map<Object, Set<Object>> remaining = new IdentityHashMap<>();
+        for (Object entity : entities) {
+            remaining.put(entity, Collections.newSetFromMap(new IdentityHashMap<>()));
+        }
+        for (Object entity : entities) {
+            for (FieldAccessor accessor : selfReferences) {
+                Object target = accessor.get(entity);
+                if (target != null && target != entity && remaining.containsKey(target)) {
+                    remaining.get(entity).add(target);
+                }
+            }
+        }
+
+        List<List<Object>> levels = new ArrayList<>();
+        List<Object> pending = new ArrayList<>(entities);
+        while (!pending.isEmpty()) {
+            List<Object> level = new ArrayList<>();
+            for (Object entity : pending) {
+                if (remaining.get(entity).isEmpty()) {
+                    level.add(entity);
+                }
+            }
+
+            if (level.isEmpty()) {
+                levels.add(pending);
+                break;
+            }
+            Set<Object> done = Collections.newSetFromMap(new IdentityHashMap<>());
+            done.addAll(level);
+            pending.removeIf(done::contains);
+            for (Object entity : pending) {
+                remaining.get(entity).removeAll(done);
+            }
+            levels.add(level);
+        }
+        return levels;
+    }
+
+    /**
+     * Returns the classes in an order where every class comes after the classes it references.
+     */
+    public static List<Class<?>> dependencyOrder(Collection<Class<?>> classes,
+                                                 Function<Class<?>, EntityMetaData> metaDataResolver) {
+        List<Class<?>> order = new ArrayList<>(classes.size());
+        for (List<Class<?>> level : dependencyLevels(classes, metaDataResolver)) {
+            order.addAll(level);
+        }
+        return order;
+    }
+}
@@ -0,0 +1,51 @@
+package miniORM.metaData;
+
+import miniORM.sql.StatementKind;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mapping code of one entity generated at build time by {@code miniORM.processor.EntityMapperProcessor}.
+ * <p>
+ * When a class named {@code <entity class name>}{@value #CLASS_NAME_SUFFIX} implementing this interface is on
+ * the classpath next to the entity, {@link EntityMetaData} instantiates the entity, reads and writes its fields and
+ * binds its columns through it instead of method handles, and the statements it provides replace the generated ones.
+ * Fields are addressed by their index in {@link #getFieldNames()} and accessed through the entity's getters and
+ * setters, so lazy proxies behave as with hand-written code.
+ */
+public interface EntityMapper<T> {
+
+    String CLASS_NAME_SUFFIX = "_Mapper";
+
+    Class<T> getEntityClass();
+
+    /**
+     * Returns the names of the column and collection relation fields, in declaration order.
+     */
+    List<String> getFieldNames();
+
+    /**
+     * Returns the statements that do not depend on other entities; the other kinds are built at runtime.
+     */
+    Map<StatementKind, String> getStatements();
+
+    T newInstance();
+
+    Object get(T entity, int field);
+
+    void set(T entity, int field, Object value);
+
+    /**
+     * Binds the value of a column field that is not a relation with the setter of its type.
+     */
+    void bind(PreparedStatement statement, int index, T entity, int field) throws SQLException;
+
+    /**
+     * Reads the column at {@code index} into a column field that is not a relation with the getter of its type.
+     */
+    void read(ResultSet rs, int index, T entity, int field) throws SQLException;
+}
@@ -6,20 +6,222 @@ import miniORM.annotation.GeneratedValue;
 import miniORM.annotation.Id;
 import miniORM.annotation.Relation.*;
 import miniORM.exception.OrmException;
+import miniORM.exception.OrmMappingException;
 import miniORM.schemaGenerator.SqlTypeMapper;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.*;
 
 /**
  * Extracts metadata from entity classes for ORM mapping.
+ * <p>
+ * All reflection and annotation lookups happen once in the constructor; the
+ * resulting model is immutable, so instances can be cached and shared between threads.
+ * Column fields are read and written through {@link FieldAccessor}s and entities are
+ * instantiated through a constructor handle, so hot paths avoid core reflection. If the build generated an
+ * {@link EntityMapper} for the class, the mapper's plain Java code is used instead and no handles are created.
  */
 public class EntityMetaData {
     private final Class<?> clazz;
+    private final String tableName;
+    private final Field idField;
+    private final String idColumnName;
+    private final List<Field> columnFields;
+    private final List<Field> insertFields;
+    private final List<Field> updateFields;
+    private final List<Field> relationFields;
+    private final List<Field> singleValuedRelationFields;
+    private final Set<Field> singleValuedRelationSet;
+    private final List<Field> eagerSingleValuedRelationFields;
+    private final List<Field> collectionRelationFields;
+    private final Map<Field, Class<?>> collectionElementTypes;
+    private final Set<Field> lazyFields;
+    private final Set<Field> generatedFields;
+    private final boolean hasGeneratedValue;
+    private final Map<Field, String> columnNames;
+    private final Map<Field, String> mappedColumnNames;
+    private final Map<Field, FieldAccessor> accessors;
+    private final Map<Field, ColumnBinder> binders;
+    private final Map<String, Field> fieldsByName;
+    private final MethodHandle constructor;
+    private final EntityMapper<Object> mapper;
 
     public EntityMetaData(Class<?> clazz) {
         this.clazz = clazz;
         validateEntityClass(clazz);
+
+        this.tableName = resolveTableName(clazz);
+
+        Field id = null;
+        List<Field> columns = new ArrayList<>();
+        List<Field> relations = new ArrayList<>();
+        List<Field> singleValued = new ArrayList<>();
+        List<Field> eagerSingleValued = new ArrayList<>();
+        List<Field> collections = new ArrayList<>();
+        Map<Field, Class<?>> elementTypes = new HashMap<>();
+        Set<Field> lazy = new HashSet<>();
+        Set<Field> generated = new HashSet<>();
+        Map<Field, String> names = new HashMap<>();
+        Map<Field, String> mappedNames = new HashMap<>();
+        Map<Field, FieldAccessor> fieldAccessors = new HashMap<>();
+        Map<Field, ColumnBinder> columnBinders = new HashMap<>();
+        Map<String, Field> byName = new HashMap<>();
+        EntityMapper<Object> entityMapper = findMapper(clazz);
+        Map<String, Integer> mapperIndexes = new HashMap<>();
+        if (entityMapper != null) {
+            List<String> mappedFieldNames = entityMapper.getFieldNames();
+            for (int i = 0; i < mappedFieldNames.size(); i++) {
+                mapperIndexes.put(mappedFieldNames.get(i), i);
+            }
+        }
+        MethodHandles.Lookup lookup = entityMapper == null ? privateLookup(clazz) : null;
+
+        for (Field field : clazz.getDeclaredFields()) {
+            boolean isId = field.isAnnotationPresent(Id.class);
+            boolean isSingleValued = field.isAnnotationPresent(ManyToOne.class)
+                    || field.isAnnotationPresent(OneToOne.class);
+            boolean isCollection = field.isAnnotationPresent(OneToMany.class)
+                    || field.isAnnotationPresent(ManyToMany.class);
+
+            if (isId && id == null) {
+                id = field;
+            }
+            if (isSingleValued || isCollection) {
+                relations.add(field);
+            }
+            if (field.isAnnotationPresent(GeneratedValue.class)) {
+                generated.add(field);
+            }
+
+            names.put(field, resolveColumnName(field));
+            byName.put(field.getName(), field);
+
+            if (isCollection) {
+                collections.add(field);
+                fieldAccessors.put(field, newAccessor(field, lookup, entityMapper, mapperIndexes));
+                Class<?> elementType = resolveElementType(field);
+                if (elementType != null) {
+                    elementTypes.put(field, elementType);
+                }
+                if (resolveFetchType(field) == FetchType.LAZY) {
+                    lazy.add(field);
+                }
+            }
+
+            if (field.isAnnotationPresent(Column.class) || isId || isSingleValued) {
+                columns.add(field);
+                FieldAccessor accessor = newAccessor(field, lookup, entityMapper, mapperIndexes);
+                fieldAccessors.put(field, accessor);
+                if (isSingleValued) {
+                    singleValued.add(field);
+                    if (resolveFetchType(field) == FetchType.LAZY) {
+                        lazy.add(field);
+                    } else {
+                        eagerSingleValued.add(field);
+                    }
+                    mappedNames.put(field, resolveJoinColumnName(field));
+                } else {
+                    mappedNames.put(field, names.get(field));
+                    columnBinders.put(field, entityMapper != null
+                            ? ColumnBinder.forMapper(field, entityMapper, mapperIndex(field, mapperIndexes))
+                            : ColumnBinder.forField(field, accessor, lookup));
+                }
+            }
+        }
+
+        List<Field> inserts = new ArrayList<>();
+        List<Field> updates = new ArrayList<>();
+        for (Field field : columns) {
+            if (!generated.contains(field)) {
+                inserts.add(field);
+            }
+            if (!field.equals(id)) {
+                updates.add(field);
+            }
+        }
+
+        this.idField = id;
+        this.idColumnName = id != null ? names.get(id) : null;
+        this.columnFields = List.copyOf(columns);
+        this.insertFields = List.copyOf(inserts);
+        this.updateFields = List.copyOf(updates);
+        this.relationFields = List.copyOf(relations);
+        this.singleValuedRelationFields = List.copyOf(singleValued);
+        this.singleValuedRelationSet = Set.copyOf(singleValued);
+        this.eagerSingleValuedRelationFields = List.copyOf(eagerSingleValued);
+        this.collectionRelationFields = List.copyOf(collections);
+        this.collectionElementTypes = Map.copyOf(elementTypes);
+        this.lazyFields = Set.copyOf(lazy);
+        this.generatedFields = Set.copyOf(generated);
+        this.hasGeneratedValue = inserts.size() < columns.size();
+        this.columnNames = Map.copyOf(names);
+        this.mappedColumnNames = Map.copyOf(mappedNames);
+        this.accessors = Map.copyOf(fieldAccessors);
+        this.binders = Map.copyOf(columnBinders);
+        this.fieldsByName = Map.copyOf(byName);
+        this.constructor = entityMapper == null ? findConstructor(clazz, lookup) : null;
+        this.mapper = entityMapper;
+    }
+
+    /**
+     * Returns the generated mapper of the entity class, or null if the build did not generate one.
+     */
+    @SuppressWarnings("unchecked")
+    private static EntityMapper<Object> findMapper(Class<?> clazz) {
+        Class<?> mapperClass;
+        try {
+            mapperClass = Class.forName(clazz.getName() + EntityMapper.CLASS_NAME_SUFFIX, true, clazz.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        if (!EntityMapper.class.isAssignableFrom(mapperClass)) {
+            return null;
+        }
+        try {
+            EntityMapper<Object> mapper = (EntityMapper<Object>) mapperClass.getDeclaredConstructor().newInstance();
+            return mapper.getEntityClass() == clazz ? mapper : null;
+        } catch (ReflectiveOperationException e) {
+            throw new OrmMappingException("Cannot instantiate mapper " + mapperClass.getName(), e);
+        }
+    }
+
+    private static FieldAccessor newAccessor(Field field, MethodHandles.Lookup lookup, EntityMapper<Object> mapper,
+                                             Map<String, Integer> mapperIndexes) {
+        return mapper != null
+                ? new FieldAccessor(field, mapper, mapperIndex(field, mapperIndexes))
+                : new FieldAccessor(field, lookup);
+    }
+
+    private static int mapperIndex(Field field, Map<String, Integer> mapperIndexes) {
+        Integer index = mapperIndexes.get(field.getName());
+        if (index == null) {
+            throw new OrmMappingException("Generated mapper of " + field.getDeclaringClass().getName()
+                    + " does not map field " + field.getName() + "; rebuild to regenerate it");
+        }
+        return index;
+    }
+
+    private static MethodHandles.Lookup privateLookup(Class<?> clazz) {
+        try {
+            return MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            throw new OrmMappingException("Cannot access entity class " + clazz.getName(), e);
+        }
+    }
+
+    private static MethodHandle findConstructor(Class<?> clazz, MethodHandles.Lookup lookup) {
+        try {
+            return lookup.findConstructor(clazz, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            // Reported by newInstance(), so entities that are never loaded do not need a no-arg constructor
+            return null;
+        }
     }
 
     private void validateEntityClass(Class<?> clazz) {
@@ -28,7 +230,7 @@ public class EntityMetaData {
         }
     }
 
-    public String getTableName() {
+    private static String resolveTableName(Class<?> clazz) {
         Entity entityAnnotation = clazz.getAnnotation(Entity.class);
         String tableName = entityAnnotation.tableName();
         if (tableName == null || tableName.trim().isEmpty()) {
@@ -37,33 +239,40 @@ public class EntityMetaData {
         return tableName.toUpperCase();
     }
 
-    public boolean isGeneratedValue(Field field) {
-        return field.isAnnotationPresent(GeneratedValue.class);
+    private static String resolveColumnName(Field field) {
+        Column columnAnnotation = field.getAnnotation(Column.class);
+        if (columnAnnotation != null && columnAnnotation.name() != null && !columnAnnotation.name().trim().isEmpty()) {
+            return columnAnnotation.name().toUpperCase();
+        }
+        return field.getName().toUpperCase();
     }
 
-    public boolean hasGeneratedValue() {
-        for (Field field : getColumnFields()) {
-            if (isGeneratedValue(field)) {
-                return true;
-            }
+    private static FetchType resolveFetchType(Field field) {
+        ManyToOne manyToOne = field.getAnnotation(ManyToOne.class);
+        if (manyToOne != null) {
+            return manyToOne.fetch();
         }
-        return false;
+        OneToOne oneToOne = field.getAnnotation(OneToOne.class);
+        if (oneToOne != null) {
+            return oneToOne.fetch();
+        }
+        OneToMany oneToMany = field.getAnnotation(OneToMany.class);
+        if (oneToMany != null) {
+            return oneToMany.fetch();
+        }
+        ManyToMany manyToMany = field.getAnnotation(ManyToMany.class);
+        return manyToMany != null ? manyToMany.fetch() : FetchType.EAGER;
     }
 
-    public List<Field> getAllRelationFields() {
-        List<Field> relationFields = new ArrayList<>();
-        for (Field field : clazz.getDeclaredFields()) {
-            if (field.isAnnotationPresent(OneToOne.class)
-                    || field.isAnnotationPresent(OneToMany.class)
-                    || field.isAnnotationPresent(ManyToOne.class)
-                    || field.isAnnotationPresent(ManyToMany.class)) {
-                relationFields.add(field);
-            }
+    private static Class<?> resolveElementType(Field field) {
+        Type genericType = field.getGenericType();
+        if (genericType instanceof ParameterizedType pt && pt.getActualTypeArguments()[0] instanceof Class<?> elementType) {
+            return elementType;
         }
-        return relationFields;
+        return null;
     }
 
-    public String getJoinColumnName(Field field) {
+    private static String resolveJoinColumnName(Field field) {
         if (field.isAnnotationPresent(JoinColumn.class)) {
             String name = field.getAnnotation(JoinColumn.class).name();
             if (name != null && !name.trim().isEmpty()) {
@@ -73,50 +282,219 @@ public class EntityMetaData {
         return field.getName().toUpperCase() + "_ID";
     }
 
+    /**
+     * Returns the generated mapper of the entity, or null if there is none.
+     */
+    public EntityMapper<Object> getMapper() {
+        return mapper;
+    }
+
+    public Class<?> getEntityClass() {
+        return clazz;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public boolean isGeneratedValue(Field field) {
+        return generatedFields.contains(field);
+    }
+
+    public boolean hasGeneratedValue() {
+        return hasGeneratedValue;
+    }
+
+    public List<Field> getAllRelationFields() {
+        return relationFields;
+    }
+
+    /**
+     * Returns true for {@code @ManyToOne} and {@code @OneToOne} fields, which are stored as a foreign key column.
+     */
+    public boolean isSingleValuedRelation(Field field) {
+        return singleValuedRelationSet.contains(field);
+    }
+
+    /**
+     * The {@code @ManyToOne} and {@code @OneToOne} fields, in declaration order.
+     */
+    public List<Field> getSingleValuedRelationFields() {
+        return singleValuedRelationFields;
+    }
+
+    /**
+     * The single-valued relation fields that are not {@link FetchType#LAZY}, in declaration order.
+     */
+    public List<Field> getEagerSingleValuedRelationFields() {
+        return eagerSingleValuedRelationFields;
+    }
+
+    public boolean isLazy(Field field) {
+        return lazyFields.contains(field);
+    }
+
+    /**
+     * The {@code @OneToMany} and {@code @ManyToMany} fields, in declaration order.
+     */
+    public List<Field> getCollectionRelationFields() {
+        return collectionRelationFields;
+    }
+
+    public boolean hasCollectionRelations() {
+        return !collectionRelationFields.isEmpty();
+    }
+
+    public boolean isManyToMany(Field field) {
+        return field.isAnnotationPresent(ManyToMany.class);
+    }
+
+    /**
+     * Returns the entity type held by a collection relation, taken from its type argument.
+     */
+    public Class<?> getCollectionElementType(Field field) {
+        Class<?> elementType = collectionElementTypes.get(field);
+        if (elementType == null) {
+            throw new OrmMappingException("Collection field " + field.getName() + " of " + clazz.getSimpleName()
+                    + " must declare its element type, e.g. List<Order>");
+        }
+        return elementType;
+    }
+
+    /**
+     * Returns the {@code mappedBy} attribute of a {@code @OneToMany} or {@code @ManyToMany} field, or an empty string.
+     */
+    public String getMappedBy(Field field) {
+        OneToMany oneToMany = field.getAnnotation(OneToMany.class);
+        if (oneToMany != null) {
+            return oneToMany.mappedBy();
+        }
+        ManyToMany manyToMany = field.getAnnotation(ManyToMany.class);
+        return manyToMany != null ? manyToMany.mappedBy() : "";
+    }
+
+    /**
+     * Returns the declared field with the given name.
+     */
+    public Field getField(String name) {
+        Field field = fieldsByName.get(name);
+        if (field == null) {
+            throw new OrmMappingException("Entity " + clazz.getSimpleName() + " has no field named " + name);
+        }
+        return field;
+    }
+
+    /**
+     * Name of the join table linking this entity with another one through {@code @ManyToMany}:
+     * both table names in alphabetical order, joined by an underscore.
+     */
+    public String getJoinTableName(EntityMetaData other) {
+        List<String> tables = Arrays.asList(getTableName(), other.getTableName());
+        Collections.sort(tables);
+        return tables.get(0) + "_" + tables.get(1);
+    }
+
+    /**
+     * Column referencing this entity in a {@code @ManyToMany} join table.
+     */
+    public String getJoinTableColumnName() {
+        return getTableName() + "_" + getIdColumnName();
+    }
+
+    public String getJoinColumnName(Field field) {
+        if (singleValuedRelationSet.contains(field)) {
+            return mappedColumnNames.get(field);
+        }
+        return resolveJoinColumnName(field);
+    }
+
     public Field getIdField() {
-        for (Field field : clazz.getDeclaredFields()) {
-            if (field.isAnnotationPresent(Id.class)) {
-                field.setAccessible(true);
-                return field;
-            }
+        if (idField == null) {
+            throw new OrmException("No field annotated with @Id in " + clazz.getSimpleName());
         }
-        throw new OrmException("No field annotated with @Id in " + clazz.getSimpleName());
+        return idField;
     }
 
     public String getIdColumnName() {
-        Field idField = getIdField();
-        if (idField.isAnnotationPresent(Column.class)) {
-            String name = idField.getAnnotation(Column.class).name();
-            if (name != null && !name.trim().isEmpty()) {
-                return name.toUpperCase();
-            }
-        }
-        return idField.getName().toUpperCase();
+        getIdField();
+        return idColumnName;
     }
 
     public List<Field> getColumnFields() {
-        List<Field> fields = new ArrayList<>();
-        for (Field field : clazz.getDeclaredFields()) {
-            if (field.isAnnotationPresent(Column.class)
-                    || field.isAnnotationPresent(Id.class)
-                    || field.isAnnotationPresent(ManyToOne.class)
-                    || field.isAnnotationPresent(OneToOne.class)) {
-                field.setAccessible(true);
-                fields.add(field);
-            }
-        }
-        return fields;
+        return columnFields;
+    }
+
+    /**
+     * Column fields written by an INSERT, i.e. every column field except generated ones.
+     */
+    public List<Field> getInsertFields() {
+        return insertFields;
+    }
+
+    /**
+     * Column fields written by an UPDATE, i.e. every column field except the id.
+     */
+    public List<Field> getUpdateFields() {
+        return updateFields;
     }
 
     public String getColumnName(Field field) {
-        Column columnAnnotation = field.getAnnotation(Column.class);
-        if (columnAnnotation != null && columnAnnotation.name() != null && !columnAnnotation.name().trim().isEmpty()) {
-            return columnAnnotation.name().toUpperCase();
+        String name = columnNames.get(field);
+        return name != null ? name : resolveColumnName(field);
+    }
+
+    /**
+     * Returns the physical column of a column field: the join column for relations, the column name otherwise.
+     */
+    public String getMappedColumnName(Field field) {
+        String name = mappedColumnNames.get(field);
+        return name != null ? name : getColumnName(field);
+    }
+
+    /**
+     * Creates an empty entity through its no-arg constructor.
+     */
+    public Object newInstance() {
+        if (mapper != null) {
+            return mapper.newInstance();
         }
-        return field.getName().toUpperCase();
+        if (constructor == null) {
+            throw new OrmMappingException("Entity " + clazz.getSimpleName() + " has no accessible no-arg constructor");
+        }
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new OrmMappingException("Cannot instantiate entity " + clazz.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Returns the accessor of a column or collection relation field.
+     */
+    public FieldAccessor getAccessor(Field field) {
+        FieldAccessor accessor = accessors.get(field);
+        if (accessor == null) {
+            throw new OrmMappingException("Field " + field.getName() + " is not a column of " + clazz.getSimpleName());
+        }
+        return accessor;
+    }
+
+    /**
+     * Returns the binder of a column field that is not a relation.
+     */
+    public ColumnBinder getBinder(Field field) {
+        ColumnBinder binder = binders.get(field);
+        if (binder == null) {
+            throw new OrmMappingException("Field " + field.getName() + " is not a plain column of " + clazz.getSimpleName());
+        }
+        return binder;
     }
 
     public Object getFieldValue(Object entity, Field field) {
+        FieldAccessor accessor = accessors.get(field);
+        if (accessor != null) {
+            return accessor.get(entity);
+        }
         try {
             field.setAccessible(true);
             return field.get(entity);
@@ -125,6 +503,14 @@ public class EntityMetaData {
         }
     }
 
+    public Object getIdValue(Object entity) {
+        return getAccessor(getIdField()).get(entity);
+    }
+
+    public void setIdValue(Object entity, Object id) {
+        getAccessor(getIdField()).set(entity, id);
+    }
+
     public Map<String, String> getColumnDefinitions() {
         Map<String, String> columnDefinitions = new LinkedHashMap<>();
 
@@ -137,7 +523,7 @@ public class EntityMetaData {
             String columnName;
             String columnType;
 
-            if (isEntityType(field.getType()) && (field.isAnnotationPresent(ManyToOne.class) || field.isAnnotationPresent(OneToOne.class))) {
+            if (isEntityType(field.getType()) && isSingleValuedRelation(field)) {
                 // For relation fields, define FK column
                 columnName = getJoinColumnName(field);
 
@@ -153,7 +539,7 @@ public class EntityMetaData {
 
             StringBuilder definition = new StringBuilder(columnName + " " + columnType);
 
-            if (field.isAnnotationPresent(Id.class)) {
+            if (field.equals(idField)) {
                 definition.append(" PRIMARY KEY");
                 if (isGeneratedValue(field)) {
                     definition.append(" AUTO_INCREMENT");
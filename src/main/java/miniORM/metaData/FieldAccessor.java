@@ -0,0 +1,74 @@
+package miniORM.metaData;
+
+import miniORM.exception.OrmMappingException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Reads and writes one entity field through method handles resolved once per field.
+ * <p>
+ * The handles are adapted to {@code (Object)Object} and {@code (Object,Object)void} so they can be
+ * called with {@code invokeExact}, which the JIT can inline unlike {@link Field#get}/{@link Field#set}.
+ * Fields of entities with a generated {@link EntityMapper} go through the mapper instead.
+ */
+public final class FieldAccessor {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Field field;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+    private final EntityMapper<Object> mapper;
+    private final int mapperIndex;
+
+    FieldAccessor(Field field, MethodHandles.Lookup lookup) {
+        this.field = field;
+        this.mapper = null;
+        this.mapperIndex = -1;
+        try {
+            this.getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+            this.setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new OrmMappingException("Cannot create accessor for field " + field.getName(), e);
+        }
+    }
+
+    FieldAccessor(Field field, EntityMapper<Object> mapper, int mapperIndex) {
+        this.field = field;
+        this.getter = null;
+        this.setter = null;
+        this.mapper = mapper;
+        this.mapperIndex = mapperIndex;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public Object get(Object entity) {
+        try {
+            if (mapper != null) {
+                return mapper.get(entity, mapperIndex);
+            }
+            return (Object) getter.invokeExact(entity);
+        } catch (Throwable e) {
+            throw new OrmMappingException("Cannot read field " + field.getName() + " of " + field.getDeclaringClass().getSimpleName(), e);
+        }
+    }
+
+    public void set(Object entity, Object value) {
+        try {
+            if (mapper != null) {
+                mapper.set(entity, mapperIndex, value);
+                return;
+            }
+            setter.invokeExact(entity, value);
+        } catch (Throwable e) {
+            throw new OrmMappingException("Cannot write field " + field.getName() + " of " + field.getDeclaringClass().getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package miniORM.processor;
+
+import miniORM.annotation.Entity;
+import miniORM.schemaGenerator.EntityUtil;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Writes the {@value EntityUtil#INDEX_RESOURCE} resource listing every {@code @Entity} class of the compilation,
+ * so {@link EntityUtil} can load the entities at startup instead of scanning the classpath.
+ * <p>
+ * Entries of an index left by an earlier, partial compilation are kept as long as they still name an entity,
+ * so incremental builds do not drop the entities they did not recompile. Enable it like
+ * {@link EntityMapperProcessor}.
+ */
+@SupportedAnnotationTypes("miniORM.annotation.Entity")
+public class EntityIndexProcessor extends AbstractProcessor {
+
+    private final Set<String> entities = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Entity.class)) {
+            if (element.getKind() == ElementKind.CLASS) {
+                entities.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+            }
+        }
+
+        if (roundEnv.processingOver() && !entities.isEmpty()) {
+            try {
+                addPreviousEntries();
+                writeIndex();
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Cannot write entity index " + EntityUtil.INDEX_RESOURCE + ": " + e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    private void addPreviousEntries() {
+        try {
+            FileObject previous = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", EntityUtil.INDEX_RESOURCE);
+            try (Reader reader = previous.openReader(true); BufferedReader lines = new BufferedReader(reader)) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    String className = line.trim();
+                    TypeElement type = className.isEmpty() ? null
+                            : processingEnv.getElementUtils().getTypeElement(className.replace('$', '.'));
+                    if (type != null && type.getAnnotation(Entity.class) != null) {
+                        entities.add(className);
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // No previous index
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", EntityUtil.INDEX_RESOURCE);
+        try (PrintWriter out = new PrintWriter(index.openWriter())) {
+            out.println("# @Entity classes, generated by " + EntityIndexProcessor.class.getName());
+            entities.forEach(out::println);
+        }
+    }
+}
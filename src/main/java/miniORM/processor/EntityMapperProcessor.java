@@ -0,0 +1,452 @@
+package miniORM.processor;
+
+import miniORM.annotation.Column;
+import miniORM.annotation.Entity;
+import miniORM.annotation.GeneratedValue;
+import miniORM.annotation.Id;
+import miniORM.annotation.Relation.JoinColumn;
+import miniORM.annotation.Relation.ManyToMany;
+import miniORM.annotation.Relation.ManyToOne;
+import miniORM.annotation.Relation.OneToMany;
+import miniORM.annotation.Relation.OneToOne;
+import miniORM.metaData.EntityMapper;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Generates an {@link EntityMapper} named {@code <Entity>_Mapper} next to every {@code @Entity} class, with the
+ * CRUD statements as constants and field access, instantiation and column binding as plain calls of the entity's
+ * constructor, getters and setters. {@code EntityMetaData} picks the mappers up at runtime; entities without one
+ * keep working through method handles.
+ * <p>
+ * The processor is optional: enable it with {@code -processor miniORM.processor.EntityMapperProcessor} (or the
+ * {@code annotationProcessors} setting of the Maven compiler plugin). Entities that are not public top-level
+ * classes with a no-arg constructor and a getter and setter for every mapped field are skipped with a note.
+ * <p>
+ * Table, column and statement text follow {@code EntityMetaData} and {@code SQLGenerator}; the statements
+ * that join other entities are still built at runtime.
+ */
+@SupportedAnnotationTypes("miniORM.annotation.Entity")
+public class EntityMapperProcessor extends AbstractProcessor {
+
+    // column is false for relations, which are bound as foreign keys by the entity manager
+    private record MappedField(String name, TypeMirror type, String getter, String setter, boolean column) {
+    }
+
+    /**
+     * JDBC setter, getter and {@code java.sql.Types} constant of the column types that have a typed accessor.
+     */
+    private record JdbcAccess(String setter, String getter, String sqlType) {
+    }
+
+    private static final Map<String, JdbcAccess> JDBC_ACCESS = Map.ofEntries(
+            Map.entry("long", new JdbcAccess("setLong", "getLong", "BIGINT")),
+            Map.entry("int", new JdbcAccess("setInt", "getInt", "INTEGER")),
+            Map.entry("double", new JdbcAccess("setDouble", "getDouble", "DOUBLE")),
+            Map.entry("boolean", new JdbcAccess("setBoolean", "getBoolean", "BOOLEAN")),
+            Map.entry("float", new JdbcAccess("setFloat", "getFloat", "FLOAT")),
+            Map.entry("short", new JdbcAccess("setShort", "getShort", "SMALLINT")),
+            Map.entry("byte", new JdbcAccess("setByte", "getByte", "TINYINT")),
+            Map.entry("java.lang.Long", new JdbcAccess("setLong", "getLong", "BIGINT")),
+            Map.entry("java.lang.Integer", new JdbcAccess("setInt", "getInt", "INTEGER")),
+            Map.entry("java.lang.Double", new JdbcAccess("setDouble", "getDouble", "DOUBLE")),
+            Map.entry("java.lang.Boolean", new JdbcAccess("setBoolean", "getBoolean", "BOOLEAN")),
+            Map.entry("java.lang.Float", new JdbcAccess("setFloat", "getFloat", "FLOAT")),
+            Map.entry("java.lang.Short", new JdbcAccess("setShort", "getShort", "SMALLINT")),
+            Map.entry("java.lang.Byte", new JdbcAccess("setByte", "getByte", "TINYINT")),
+            Map.entry("java.lang.String", new JdbcAccess("setString", "getString", "VARCHAR")),
+            Map.entry("java.math.BigDecimal", new JdbcAccess("setBigDecimal", "getBigDecimal", "DECIMAL")));
+
+    // Read with getObject(index, type) like RowMapping does
+    private static final Set<String> TYPED_OBJECTS = Set.of(
+            "java.time.LocalDate", "java.time.LocalDateTime", "java.time.LocalTime", "java.util.UUID");
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Entity.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                continue;
+            }
+            TypeElement entity = (TypeElement) element;
+            try {
+                generate(entity);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Cannot write mapper of " + entity.getQualifiedName() + ": " + e.getMessage(), entity);
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement entity) throws IOException {
+        String skipReason = checkClass(entity);
+        if (skipReason != null) {
+            skip(entity, skipReason);
+            return;
+        }
+
+        List<MappedField> fields = new ArrayList<>();
+        VariableElement idField = null;
+        List<String> columns = new ArrayList<>();
+        List<String> insertColumns = new ArrayList<>();
+        List<VariableElement> columnFields = new ArrayList<>();
+
+        for (VariableElement field : ElementFilter.fieldsIn(entity.getEnclosedElements())) {
+            boolean isId = field.getAnnotation(Id.class) != null;
+            boolean singleValued = field.getAnnotation(ManyToOne.class) != null || field.getAnnotation(OneToOne.class) != null;
+            boolean collection = field.getAnnotation(OneToMany.class) != null || field.getAnnotation(ManyToMany.class) != null;
+            boolean column = field.getAnnotation(Column.class) != null || isId || singleValued;
+            if (!column && !collection) {
+                continue;
+            }
+
+            if (isId && idField == null) {
+                idField = field;
+            }
+            if (column) {
+                String columnName = singleValued ? joinColumnName(field) : columnName(field);
+                columns.add(columnName);
+                columnFields.add(field);
+                if (field.getAnnotation(GeneratedValue.class) == null) {
+                    insertColumns.add(columnName);
+                }
+            }
+
+            String name = field.getSimpleName().toString();
+            String getter = findGetter(entity, field);
+            String setter = findSetter(entity, field);
+            if (getter == null || setter == null) {
+                skip(entity, "field " + name + " has no getter or setter");
+                return;
+            }
+            fields.add(new MappedField(name, field.asType(), getter, setter, column && !singleValued));
+        }
+
+        if (idField == null) {
+            skip(entity, "it has no @Id field");
+            return;
+        }
+
+        String table = tableName(entity);
+        String idColumn = columnName(idField);
+        Map<String, String> statements = new LinkedHashMap<>();
+        statements.put("INSERT", "INSERT INTO " + table + " (" + String.join(",", insertColumns) + ") VALUES ("
+                + String.join(",", Collections.nCopies(insertColumns.size(), "?")) + ")");
+        StringJoiner assignments = new StringJoiner(",");
+        for (int i = 0; i < columns.size(); i++) {
+            if (!columnFields.get(i).equals(idField)) {
+                assignments.add(columns.get(i) + " = ?");
+            }
+        }
+        statements.put("UPDATE", "UPDATE " + table + " SET " + assignments + " WHERE " + idColumn + " = ?");
+        statements.put("SELECT_BY_ID", "SELECT * FROM " + table + " WHERE " + idColumn + " = ?");
+        statements.put("SELECT_ALL", "SELECT * FROM " + table);
+        statements.put("DELETE", "DELETE FROM " + table + " WHERE " + idColumn + " = ?");
+        statements.put("SELECT_PAGE", "SELECT * FROM " + table + " ORDER BY " + idColumn + " LIMIT ? OFFSET ?");
+        statements.put("SELECT_PAGE_AFTER_ID", "SELECT * FROM " + table + " WHERE " + idColumn + " > ? ORDER BY "
+                + idColumn + " LIMIT ?");
+
+        write(entity, fields, statements);
+    }
+
+    private String checkClass(TypeElement entity) {
+        if (entity.getNestingKind() != NestingKind.TOP_LEVEL) {
+            return "it is not a top-level class";
+        }
+        if (!entity.getModifiers().contains(Modifier.PUBLIC) || entity.getModifiers().contains(Modifier.ABSTRACT)) {
+            return "it is not a public concrete class";
+        }
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(entity.getEnclosedElements());
+        boolean noArg = constructors.stream()
+                .anyMatch(c -> c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE));
+        return noArg ? null : "it has no accessible no-arg constructor";
+    }
+
+    private void skip(TypeElement entity, String reason) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                "No mapper generated for " + entity.getQualifiedName() + " because " + reason, entity);
+    }
+
+    private String findGetter(TypeElement entity, VariableElement field) {
+        String suffix = capitalize(field.getSimpleName().toString());
+        List<String> names = field.asType().getKind() == TypeKind.BOOLEAN
+                ? List.of("is" + suffix, "get" + suffix)
+                : List.of("get" + suffix);
+        for (ExecutableElement method : ElementFilter.methodsIn(entity.getEnclosedElements())) {
+            if (names.contains(method.getSimpleName().toString()) && method.getParameters().isEmpty()
+                    && isAccessible(method) && sameType(method.getReturnType(), field.asType())) {
+                return method.getSimpleName().toString();
+            }
+        }
+        return null;
+    }
+
+    private String findSetter(TypeElement entity, VariableElement field) {
+        String name = "set" + capitalize(field.getSimpleName().toString());
+        for (ExecutableElement method : ElementFilter.methodsIn(entity.getEnclosedElements())) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == 1
+                    && isAccessible(method) && sameType(method.getParameters().get(0).asType(), field.asType())) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isAccessible(ExecutableElement method) {
+        return !method.getModifiers().contains(Modifier.PRIVATE) && !method.getModifiers().contains(Modifier.STATIC);
+    }
+
+    private boolean sameType(TypeMirror a, TypeMirror b) {
+        Types types = processingEnv.getTypeUtils();
+        return types.isSameType(types.erasure(a), types.erasure(b));
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    // Naming rules of EntityMetaData
+
+    private static String tableName(TypeElement entity) {
+        String tableName = entity.getAnnotation(Entity.class).tableName();
+        if (tableName == null || tableName.trim().isEmpty()) {
+            return entity.getSimpleName().toString().toUpperCase();
+        }
+        return tableName.toUpperCase();
+    }
+
+    private static String columnName(VariableElement field) {
+        Column column = field.getAnnotation(Column.class);
+        if (column != null && column.name() != null && !column.name().trim().isEmpty()) {
+            return column.name().toUpperCase();
+        }
+        return field.getSimpleName().toString().toUpperCase();
+    }
+
+    private static String joinColumnName(VariableElement field) {
+        JoinColumn joinColumn = field.getAnnotation(JoinColumn.class);
+        if (joinColumn != null && joinColumn.name() != null && !joinColumn.name().trim().isEmpty()) {
+            return joinColumn.name().toUpperCase();
+        }
+        return field.getSimpleName().toString().toUpperCase() + "_ID";
+    }
+
+    private void write(TypeElement entity, List<MappedField> fields, Map<String, String> statements) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(entity).getQualifiedName().toString();
+        String entityName = entity.getSimpleName().toString();
+        String mapperName = entityName + EntityMapper.CLASS_NAME_SUFFIX;
+        String qualifiedName = packageName.isEmpty() ? mapperName : packageName + "." + mapperName;
+
+        Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, entity).openWriter();
+        try (PrintWriter out = new PrintWriter(writer)) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("import miniORM.metaData.EntityMapper;");
+            out.println("import miniORM.sql.StatementKind;");
+            out.println();
+            out.println("import java.sql.PreparedStatement;");
+            out.println("import java.sql.ResultSet;");
+            out.println("import java.sql.SQLException;");
+            out.println("import java.sql.Types;");
+            out.println("import java.util.List;");
+            out.println("import java.util.Map;");
+            out.println();
+            out.println("@javax.annotation.processing.Generated(\"" + EntityMapperProcessor.class.getName() + "\")");
+            out.println("public final class " + mapperName + " implements EntityMapper<" + entityName + "> {");
+            out.println();
+
+            StringJoiner names = new StringJoiner(", ");
+            fields.forEach(f -> names.add(literal(f.name())));
+            out.println("    private static final List<String> FIELD_NAMES = List.of(" + names + ");");
+            out.println();
+            out.println("    private static final Map<StatementKind, String> STATEMENTS = Map.of(");
+            StringJoiner entries = new StringJoiner(",\n");
+            statements.forEach((kind, sql) -> entries.add("            StatementKind." + kind + ", " + literal(sql)));
+            out.println(entries + ");");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public Class<" + entityName + "> getEntityClass() {");
+            out.println("        return " + entityName + ".class;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public List<String> getFieldNames() {");
+            out.println("        return FIELD_NAMES;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Map<StatementKind, String> getStatements() {");
+            out.println("        return STATEMENTS;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + entityName + " newInstance() {");
+            out.println("        return new " + entityName + "();");
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public Object get(" + entityName + " entity, int field) {");
+            out.println("        return switch (field) {");
+            for (int i = 0; i < fields.size(); i++) {
+                out.println("            case " + i + " -> entity." + fields.get(i).getter() + "();");
+            }
+            out.println("            default -> throw noSuchField(field);");
+            out.println("        };");
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    @SuppressWarnings(\"unchecked\")");
+            out.println("    public void set(" + entityName + " entity, int field, Object value) {");
+            out.println("        switch (field) {");
+            for (int i = 0; i < fields.size(); i++) {
+                MappedField f = fields.get(i);
+                out.println("            case " + i + " -> entity." + f.setter() + "((" + boxedName(f.type()) + ") value);");
+            }
+            out.println("            default -> throw noSuchField(field);");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public void bind(PreparedStatement statement, int index, " + entityName
+                    + " entity, int field) throws SQLException {");
+            out.println("        switch (field) {");
+            for (int i = 0; i < fields.size(); i++) {
+                MappedField f = fields.get(i);
+                if (f.column()) {
+                    out.println("            case " + i + " -> {");
+                    writeBind(out, f);
+                    out.println("            }");
+                }
+            }
+            out.println("            default -> throw noSuchField(field);");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public void read(ResultSet rs, int index, " + entityName
+                    + " entity, int field) throws SQLException {");
+            out.println("        switch (field) {");
+            for (int i = 0; i < fields.size(); i++) {
+                MappedField f = fields.get(i);
+                if (f.column()) {
+                    out.println("            case " + i + " -> {");
+                    writeRead(out, f);
+                    out.println("            }");
+                }
+            }
+            out.println("            default -> throw noSuchField(field);");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+
+            out.println("    private static IllegalArgumentException noSuchField(int field) {");
+            out.println("        return new IllegalArgumentException(\"" + entityName + " has no mapped column field \" + field);");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private void writeBind(PrintWriter out, MappedField f) {
+        String indent = "                ";
+        String type = f.type().toString();
+        String value = "entity." + f.getter() + "()";
+        JdbcAccess access = JDBC_ACCESS.get(type);
+
+        if (f.type().getKind() == TypeKind.CHAR) {
+            out.println(indent + "statement.setString(index, String.valueOf(" + value + "));");
+        } else if (type.equals("java.lang.Character")) {
+            out.println(indent + type + " value = " + value + ";");
+            out.println(indent + "if (value == null) {");
+            out.println(indent + "    statement.setNull(index, Types.CHAR);");
+            out.println(indent + "} else {");
+            out.println(indent + "    statement.setString(index, String.valueOf((char) value));");
+            out.println(indent + "}");
+        } else if (access == null) {
+            out.println(indent + "statement.setObject(index, " + value + ");");
+        } else if (f.type().getKind().isPrimitive()) {
+            out.println(indent + "statement." + access.setter() + "(index, " + value + ");");
+        } else {
+            out.println(indent + type + " value = " + value + ";");
+            out.println(indent + "if (value == null) {");
+            out.println(indent + "    statement.setNull(index, Types." + access.sqlType() + ");");
+            out.println(indent + "} else {");
+            out.println(indent + "    statement." + access.setter() + "(index, value);");
+            out.println(indent + "}");
+        }
+    }
+
+    private void writeRead(PrintWriter out, MappedField f) {
+        String indent = "                ";
+        String type = f.type().toString();
+        String setter = "entity." + f.setter();
+        JdbcAccess access = JDBC_ACCESS.get(type);
+
+        if (f.type().getKind() == TypeKind.CHAR) {
+            out.println(indent + "String value = rs.getString(index);");
+            out.println(indent + setter + "(value != null && !value.isEmpty() ? value.charAt(0) : '\\0');");
+        } else if (type.equals("java.lang.Character")) {
+            out.println(indent + "String value = rs.getString(index);");
+            out.println(indent + setter + "(value == null ? null : value.isEmpty() ? '\\0' : value.charAt(0));");
+        } else if (access != null && (f.type().getKind().isPrimitive() || type.equals("java.lang.String")
+                || type.equals("java.math.BigDecimal"))) {
+            out.println(indent + setter + "(rs." + access.getter() + "(index));");
+        } else if (access != null) {
+            String primitive = processingEnv.getTypeUtils().unboxedType(f.type()).toString();
+            out.println(indent + primitive + " value = rs." + access.getter() + "(index);");
+            out.println(indent + setter + "(rs.wasNull() ? null : value);");
+        } else if (TYPED_OBJECTS.contains(type)) {
+            out.println(indent + setter + "(rs.getObject(index, " + type + ".class));");
+        } else {
+            out.println(indent + setter + "((" + type + ") rs.getObject(index));");
+        }
+    }
+
+    private String boxedName(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return type.toString();
+    }
+
+    private static String literal(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
@@ -0,0 +1,4 @@
+package miniORM.query;
+
+record Between(String field, Object low, Object high) implements Predicate {
+}
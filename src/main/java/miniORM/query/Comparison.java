@@ -0,0 +1,4 @@
+package miniORM.query;
+
+record Comparison(String field, Operator operator, Object value) implements Predicate {
+}
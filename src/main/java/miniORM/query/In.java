@@ -0,0 +1,6 @@
+package miniORM.query;
+
+import java.util.List;
+
+record In(String field, List<?> values) implements Predicate {
+}
@@ -0,0 +1,9 @@
+package miniORM.query;
+
+import java.util.List;
+
+/**
+ * Predicates joined by {@code AND} or {@code OR}.
+ */
+record Junction(boolean conjunction, List<Predicate> predicates) implements Predicate {
+}
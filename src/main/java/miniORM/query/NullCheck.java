@@ -0,0 +1,4 @@
+package miniORM.query;
+
+record NullCheck(String field, boolean isNull) implements Predicate {
+}
@@ -0,0 +1,21 @@
+package miniORM.query;
+
+enum Operator {
+    EQ("="),
+    NE("<>"),
+    LT("<"),
+    LE("<="),
+    GT(">"),
+    GE(">="),
+    LIKE("LIKE");
+
+    private final String sql;
+
+    Operator(String sql) {
+        this.sql = sql;
+    }
+
+    String sql() {
+        return sql;
+    }
+}
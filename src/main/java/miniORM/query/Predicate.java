@@ -0,0 +1,16 @@
+package miniORM.query;
+
+/**
+ * A condition on the fields of an entity, created through {@link Predicates} and rendered to a
+ * parameterized SQL {@code WHERE} clause by {@link Query}.
+ */
+public sealed interface Predicate permits Comparison, In, Between, NullCheck, Junction {
+
+    default Predicate and(Predicate other) {
+        return Predicates.and(this, other);
+    }
+
+    default Predicate or(Predicate other) {
+        return Predicates.or(this, other);
+    }
+}
@@ -0,0 +1,144 @@
+package miniORM.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Factory methods for {@link Predicate}s. Fields are named as declared in the entity class, or given as a
+ * {@link Property} getter reference such as {@code Order::getProduct}, and resolved to their columns when the query
+ * is rendered; a single-valued relation is compared by foreign key and accepts either the related entity or its id.
+ */
+public final class Predicates {
+
+    private Predicates() {
+    }
+
+    public static Predicate eq(String field, Object value) {
+        return value == null ? isNull(field) : new Comparison(field, Operator.EQ, value);
+    }
+
+    public static Predicate ne(String field, Object value) {
+        return value == null ? isNotNull(field) : new Comparison(field, Operator.NE, value);
+    }
+
+    public static Predicate lt(String field, Object value) {
+        return new Comparison(field, Operator.LT, requireValue(value));
+    }
+
+    public static Predicate le(String field, Object value) {
+        return new Comparison(field, Operator.LE, requireValue(value));
+    }
+
+    public static Predicate gt(String field, Object value) {
+        return new Comparison(field, Operator.GT, requireValue(value));
+    }
+
+    public static Predicate ge(String field, Object value) {
+        return new Comparison(field, Operator.GE, requireValue(value));
+    }
+
+    /**
+     * Matches a SQL {@code LIKE} pattern, e.g. {@code like("name", "Ali%")}.
+     */
+    public static Predicate like(String field, String pattern) {
+        return new Comparison(field, Operator.LIKE, requireValue(pattern));
+    }
+
+    /**
+     * Matches any of the values; an empty collection matches nothing.
+     */
+    public static Predicate in(String field, Collection<?> values) {
+        return new In(field, List.copyOf(values));
+    }
+
+    /**
+     * Matches values from {@code low} to {@code high}, both inclusive.
+     */
+    public static Predicate between(String field, Object low, Object high) {
+        return new Between(field, requireValue(low), requireValue(high));
+    }
+
+    public static Predicate isNull(String field) {
+        return new NullCheck(field, true);
+    }
+
+    public static Predicate isNotNull(String field) {
+        return new NullCheck(field, false);
+    }
+
+    public static Predicate and(Predicate... predicates) {
+        return junction(true, predicates);
+    }
+
+    public static Predicate or(Predicate... predicates) {
+        return junction(false, predicates);
+    }
+
+    public static <T, V> Predicate eq(Property<T, V> property, V value) {
+        return eq(PropertyNames.of(property), value);
+    }
+
+    public static <T, V> Predicate ne(Property<T, V> property, V value) {
+        return ne(PropertyNames.of(property), value);
+    }
+
+    public static <T, V extends Comparable<? super V>> Predicate lt(Property<T, V> property, V value) {
+        return lt(PropertyNames.of(property), value);
+    }
+
+    public static <T, V extends Comparable<? super V>> Predicate le(Property<T, V> property, V value) {
+        return le(PropertyNames.of(property), value);
+    }
+
+    public static <T, V extends Comparable<? super V>> Predicate gt(Property<T, V> property, V value) {
+        return gt(PropertyNames.of(property), value);
+    }
+
+    public static <T, V extends Comparable<? super V>> Predicate ge(Property<T, V> property, V value) {
+        return ge(PropertyNames.of(property), value);
+    }
+
+    public static <T> Predicate like(Property<T, String> property, String pattern) {
+        return like(PropertyNames.of(property), pattern);
+    }
+
+    public static <T, V> Predicate in(Property<T, V> property, Collection<? extends V> values) {
+        return in(PropertyNames.of(property), values);
+    }
+
+    public static <T, V extends Comparable<? super V>> Predicate between(Property<T, V> property, V low, V high) {
+        return between(PropertyNames.of(property), low, high);
+    }
+
+    public static <T> Predicate isNull(Property<T, ?> property) {
+        return isNull(PropertyNames.of(property));
+    }
+
+    public static <T> Predicate isNotNull(Property<T, ?> property) {
+        return isNotNull(PropertyNames.of(property));
+    }
+
+    private static Predicate junction(boolean conjunction, Predicate[] predicates) {
+        if (predicates.length == 0) {
+            throw new IllegalArgumentException("At least one predicate is required");
+        }
+        // Flatten nested junctions of the same kind, so chained and()/or() calls render without extra parentheses
+        List<Predicate> parts = new ArrayList<>();
+        for (Predicate predicate : predicates) {
+            if (predicate instanceof Junction junction && junction.conjunction() == conjunction) {
+                parts.addAll(junction.predicates());
+            } else {
+                parts.add(predicate);
+            }
+        }
+        return parts.size() == 1 ? parts.get(0) : new Junction(conjunction, List.copyOf(parts));
+    }
+
+    private static <V> V requireValue(V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Comparison value must not be null; use isNull or isNotNull");
+        }
+        return value;
+    }
+}
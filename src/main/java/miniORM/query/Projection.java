@@ -0,0 +1,166 @@
+package miniORM.query;
+
+import miniORM.exception.OrmMappingException;
+import miniORM.metaData.EntityMetaData;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Maps selected columns of an entity straight into a record or an interface, without creating the entity.
+ * <p>
+ * Each record component, or each getter of the interface ({@code getName()}, {@code isActive()} or {@code name()}),
+ * names an entity field; only the columns of those fields are selected. A single-valued relation projects
+ * to its foreign key.
+ */
+public final class Projection<P> {
+
+    private final Class<P> type;
+    private final List<String> properties;
+    private final List<String> columns;
+    private final MethodHandle recordConstructor;
+
+    private Projection(Class<P> type, List<String> properties, List<String> columns, MethodHandle recordConstructor) {
+        this.type = type;
+        this.properties = properties;
+        this.columns = columns;
+        this.recordConstructor = recordConstructor;
+    }
+
+    public static <P> Projection<P> of(EntityMetaData metaData, Class<P> type) {
+        List<String> properties = new ArrayList<>();
+        MethodHandle constructor = null;
+
+        if (type.isRecord()) {
+            RecordComponent[] components = type.getRecordComponents();
+            Class<?>[] parameterTypes = new Class<?>[components.length];
+            for (int i = 0; i < components.length; i++) {
+                properties.add(components[i].getName());
+                parameterTypes[i] = components[i].getType();
+            }
+            try {
+                constructor = MethodHandles.privateLookupIn(type, MethodHandles.lookup())
+                        .findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+                        .asType(MethodType.genericMethodType(components.length))
+                        .asSpreader(Object[].class, components.length);
+            } catch (ReflectiveOperationException e) {
+                throw new OrmMappingException("Cannot access the canonical constructor of " + type.getName(), e);
+            }
+        } else if (type.isInterface()) {
+            for (Method method : type.getMethods()) {
+                if (Modifier.isAbstract(method.getModifiers())) {
+                    properties.add(propertyName(method, type));
+                }
+            }
+        } else {
+            throw new OrmMappingException("Projection " + type.getName() + " must be a record or an interface");
+        }
+
+        if (properties.isEmpty()) {
+            throw new OrmMappingException("Projection " + type.getName() + " selects no fields");
+        }
+
+        List<String> columns = new ArrayList<>(properties.size());
+        for (String property : properties) {
+            Field field = metaData.getField(property);
+            if (!metaData.getColumnFields().contains(field)) {
+                throw new OrmMappingException("Field " + property + " of " + metaData.getEntityClass().getSimpleName()
+                        + " is not mapped to a column and cannot be projected");
+            }
+            columns.add(metaData.getMappedColumnName(field));
+        }
+        return new Projection<>(type, List.copyOf(properties), List.copyOf(columns), constructor);
+    }
+
+    private static String propertyName(Method method, Class<?> type) {
+        if (method.getParameterCount() > 0 || method.getReturnType() == void.class) {
+            throw new OrmMappingException("Projection method " + type.getSimpleName() + "." + method.getName()
+                    + " must be a getter");
+        }
+        String name = method.getName();
+        int prefix = name.startsWith("get") && name.length() > 3 ? 3
+                : name.startsWith("is") && name.length() > 2 && method.getReturnType() == boolean.class ? 2
+                : 0;
+        return prefix == 0 ? name : Character.toLowerCase(name.charAt(prefix)) + name.substring(prefix + 1);
+    }
+
+    public Class<P> getType() {
+        return type;
+    }
+
+    /**
+     * The selected columns, in the order {@link #map(Object[])} expects their values.
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public P map(Object[] values) {
+        if (recordConstructor != null) {
+            try {
+                return type.cast((Object) recordConstructor.invokeExact(values));
+            } catch (Throwable e) {
+                throw new OrmMappingException("Cannot create projection " + type.getSimpleName(), e);
+            }
+        }
+
+        Map<String, Object> valuesByProperty = new HashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            valuesByProperty.put(properties.get(i), values[i]);
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new ProjectionHandler(valuesByProperty)));
+    }
+
+    private final class ProjectionHandler implements InvocationHandler {
+
+        private final Map<String, Object> values;
+
+        ProjectionHandler(Map<String, Object> values) {
+            this.values = values;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> describe();
+                };
+            }
+            if (method.isDefault()) {
+                // Proxy.invokeDefault rejects non-public interfaces, so call the default method through a private lookup
+                return MethodHandles.privateLookupIn(type, MethodHandles.lookup())
+                        .unreflectSpecial(method, type)
+                        .bindTo(proxy)
+                        .invokeWithArguments(args == null ? new Object[0] : args);
+            }
+            Object value = values.get(propertyName(method, type));
+            if (value == null && method.getReturnType().isPrimitive()) {
+                throw new OrmMappingException("Null value for primitive projection method " + method.getName());
+            }
+            return value;
+        }
+
+        private String describe() {
+            StringJoiner joiner = new StringJoiner(", ", type.getSimpleName() + "[", "]");
+            for (String property : properties) {
+                joiner.add(property + "=" + values.get(property));
+            }
+            return joiner.toString();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package miniORM.query;
+
+import java.io.Serializable;
+import java.util.function.Function;
+
+/**
+ * A getter method reference naming an entity field, e.g. {@code Order::getProduct} for the field {@code product}.
+ * <p>
+ * Used in place of a field name by {@link Predicates} and {@link Query}, so the compiler checks that the field
+ * exists on the entity and, where the value's type is declared, that the value matches it. The field name is taken
+ * from the getter's name ({@code getX} or {@code isX}), so the getter must follow the bean convention.
+ */
+@FunctionalInterface
+public interface Property<T, V> extends Function<T, V>, Serializable {
+}
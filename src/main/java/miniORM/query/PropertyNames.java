@@ -0,0 +1,47 @@
+package miniORM.query;
+
+import java.lang.invoke.SerializedLambda;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves {@link Property} method references to field names, once per method reference.
+ */
+final class PropertyNames {
+
+    // Keyed by the class the JVM generates for each method reference expression
+    private static final Map<Class<?>, String> names = new ConcurrentHashMap<>();
+
+    private PropertyNames() {
+    }
+
+    static String of(Property<?, ?> property) {
+        return names.computeIfAbsent(property.getClass(), c -> resolve(property));
+    }
+
+    private static String resolve(Property<?, ?> property) {
+        SerializedLambda lambda;
+        try {
+            Method writeReplace = property.getClass().getDeclaredMethod("writeReplace");
+            writeReplace.setAccessible(true);
+            lambda = (SerializedLambda) writeReplace.invoke(property);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException("Cannot resolve the field of " + property, e);
+        }
+
+        String method = lambda.getImplMethodName();
+        if (method.startsWith("get") && method.length() > 3 && Character.isUpperCase(method.charAt(3))) {
+            return decapitalize(method.substring(3));
+        }
+        if (method.startsWith("is") && method.length() > 2 && Character.isUpperCase(method.charAt(2))) {
+            return decapitalize(method.substring(2));
+        }
+        throw new IllegalArgumentException("A property must be a getter method reference such as Order::getProduct, not "
+                + lambda.getImplClass().replace('/', '.') + "." + method);
+    }
+
+    private static String decapitalize(String name) {
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+}
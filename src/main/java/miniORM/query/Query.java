@@ -0,0 +1,179 @@
+package miniORM.query;
+
+import miniORM.core.EntityManager;
+import miniORM.metaData.EntityMetaData;
+import miniORM.sql.SQLGenerator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Builds a select of one entity class whose filtering, ordering and limits run in the database:
+ * <pre>{@code
+ * List<Order> orders = entityManager.createQuery(Order.class)
+ *         .where(Predicates.eq(Order::getCustomer, customer).and(Predicates.like(Order::getProduct, "Book%")))
+ *         .orderBy(Order::getId, SortDirection.DESC)
+ *         .limit(20)
+ *         .getResultList();
+ * }</pre>
+ * Fields can also be named by string, e.g. {@code orderBy("id")}. Every value is bound as a parameter. Relations of the results are resolved as for {@code findAll}.
+ */
+public final class Query<T> {
+
+    private record Ordering(String field, SortDirection direction) {
+    }
+
+    private final EntityManager entityManager;
+    private final Class<T> entityClass;
+    private final List<Ordering> orderings = new ArrayList<>();
+    private Predicate predicate;
+    private Integer limit;
+    private long offset;
+
+    public Query(EntityManager entityManager, Class<T> entityClass) {
+        this.entityManager = entityManager;
+        this.entityClass = entityClass;
+    }
+
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * Sets the filter, replacing any previous one.
+     */
+    public Query<T> where(Predicate predicate) {
+        this.predicate = predicate;
+        return this;
+    }
+
+    public Query<T> and(Predicate predicate) {
+        this.predicate = this.predicate == null ? predicate : this.predicate.and(predicate);
+        return this;
+    }
+
+    public Query<T> or(Predicate predicate) {
+        this.predicate = this.predicate == null ? predicate : this.predicate.or(predicate);
+        return this;
+    }
+
+    public Query<T> in(String field, Collection<?> values) {
+        return and(Predicates.in(field, values));
+    }
+
+    public Query<T> between(String field, Object low, Object high) {
+        return and(Predicates.between(field, low, high));
+    }
+
+    public <V> Query<T> in(Property<T, V> property, Collection<? extends V> values) {
+        return and(Predicates.in(property, values));
+    }
+
+    public <V extends Comparable<? super V>> Query<T> between(Property<T, V> property, V low, V high) {
+        return and(Predicates.between(property, low, high));
+    }
+
+    public Query<T> orderBy(Property<T, ?> property) {
+        return orderBy(PropertyNames.of(property));
+    }
+
+    public Query<T> orderBy(Property<T, ?> property, SortDirection direction) {
+        return orderBy(PropertyNames.of(property), direction);
+    }
+
+    public Query<T> orderBy(String field) {
+        return orderBy(field, SortDirection.ASC);
+    }
+
+    public Query<T> orderBy(String field, SortDirection direction) {
+        orderings.add(new Ordering(field, direction));
+        return this;
+    }
+
+    public Query<T> limit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public Query<T> offset(long offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative: " + offset);
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    public List<T> getResultList() {
+        return entityManager.getResultList(this);
+    }
+
+    /**
+     * Selects only the columns of the projection's fields and maps them into it; see {@link Projection}.
+     */
+    public <P> List<P> getResultList(Class<P> projectionType) {
+        return entityManager.getResultList(this, projectionType);
+    }
+
+    /**
+     * Counts the matching rows, ignoring ordering, limit and offset.
+     */
+    public long count() {
+        return entityManager.count(this);
+    }
+
+    public SqlQuery toSql(EntityMetaData metaData, Function<Class<?>, EntityMetaData> metaDataResolver) {
+        return toSql(SQLGenerator.buildSelectAllQuery(metaData), metaData, metaDataResolver);
+    }
+
+    public SqlQuery toSql(Projection<?> projection, EntityMetaData metaData,
+                          Function<Class<?>, EntityMetaData> metaDataResolver) {
+        return toSql(SQLGenerator.buildSelectColumnsQuery(metaData, projection.getColumns()), metaData, metaDataResolver);
+    }
+
+    private SqlQuery toSql(String select, EntityMetaData metaData, Function<Class<?>, EntityMetaData> metaDataResolver) {
+        QueryRenderer renderer = new QueryRenderer(metaData, metaDataResolver);
+        renderer.append(select);
+        appendWhere(renderer);
+
+        if (!orderings.isEmpty()) {
+            renderer.append(" ORDER BY ");
+            for (int i = 0; i < orderings.size(); i++) {
+                Ordering ordering = orderings.get(i);
+                if (i > 0) {
+                    renderer.append(", ");
+                }
+                renderer.append(renderer.column(renderer.resolve(ordering.field())))
+                        .append(" ").append(ordering.direction().name());
+            }
+        }
+        if (limit != null) {
+            renderer.append(" LIMIT ").appendParameter(limit);
+        }
+        if (offset > 0) {
+            renderer.append(" OFFSET ").appendParameter(offset);
+            if (limit == null) {
+                renderer.append(" ROWS");
+            }
+        }
+        return renderer.toSqlQuery();
+    }
+
+    public SqlQuery toCountSql(EntityMetaData metaData, Function<Class<?>, EntityMetaData> metaDataResolver) {
+        QueryRenderer renderer = new QueryRenderer(metaData, metaDataResolver);
+        renderer.append("SELECT COUNT(*) FROM ").append(metaData.getTableName());
+        appendWhere(renderer);
+        return renderer.toSqlQuery();
+    }
+
+    private void appendWhere(QueryRenderer renderer) {
+        if (predicate != null) {
+            renderer.append(" WHERE ");
+            renderer.appendPredicate(predicate);
+        }
+    }
+}
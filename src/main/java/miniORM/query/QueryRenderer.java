@@ -0,0 +1,107 @@
+package miniORM.query;
+
+import miniORM.core.LazyProxies;
+import miniORM.exception.OrmMappingException;
+import miniORM.metaData.EntityMetaData;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Renders predicates to SQL, resolving field names to columns through {@link EntityMetaData}
+ * and collecting the values as parameters.
+ */
+final class QueryRenderer {
+
+    private final EntityMetaData metaData;
+    private final Function<Class<?>, EntityMetaData> metaDataResolver;
+    private final StringBuilder sql = new StringBuilder();
+    private final List<Object> parameters = new ArrayList<>();
+
+    QueryRenderer(EntityMetaData metaData, Function<Class<?>, EntityMetaData> metaDataResolver) {
+        this.metaData = metaData;
+        this.metaDataResolver = metaDataResolver;
+    }
+
+    QueryRenderer append(String text) {
+        sql.append(text);
+        return this;
+    }
+
+    QueryRenderer appendParameter(Object value) {
+        sql.append('?');
+        parameters.add(value);
+        return this;
+    }
+
+    SqlQuery toSqlQuery() {
+        return new SqlQuery(sql.toString(), List.copyOf(parameters));
+    }
+
+    void appendPredicate(Predicate predicate) {
+        switch (predicate) {
+            case Comparison comparison -> {
+                Field field = resolve(comparison.field());
+                append(column(field)).append(" ").append(comparison.operator().sql()).append(" ")
+                        .appendParameter(toColumnValue(field, comparison.value()));
+            }
+            case In in -> {
+                if (in.values().isEmpty()) {
+                    append("1 = 0");
+                    return;
+                }
+                Field field = resolve(in.field());
+                append(column(field)).append(" IN (");
+                for (int i = 0; i < in.values().size(); i++) {
+                    if (i > 0) {
+                        append(", ");
+                    }
+                    appendParameter(toColumnValue(field, in.values().get(i)));
+                }
+                append(")");
+            }
+            case Between between -> {
+                Field field = resolve(between.field());
+                append(column(field)).append(" BETWEEN ").appendParameter(toColumnValue(field, between.low()))
+                        .append(" AND ").appendParameter(toColumnValue(field, between.high()));
+            }
+            case NullCheck nullCheck ->
+                    append(column(resolve(nullCheck.field()))).append(nullCheck.isNull() ? " IS NULL" : " IS NOT NULL");
+            case Junction junction -> {
+                append("(");
+                for (int i = 0; i < junction.predicates().size(); i++) {
+                    if (i > 0) {
+                        append(junction.conjunction() ? " AND " : " OR ");
+                    }
+                    appendPredicate(junction.predicates().get(i));
+                }
+                append(")");
+            }
+        }
+    }
+
+    /**
+     * Resolves a field name to a field stored in the entity's table.
+     */
+    Field resolve(String fieldName) {
+        Field field = metaData.getField(fieldName);
+        if (!metaData.getColumnFields().contains(field)) {
+            throw new OrmMappingException("Field " + fieldName + " of " + metaData.getEntityClass().getSimpleName()
+                    + " is not mapped to a column and cannot be queried");
+        }
+        return field;
+    }
+
+    String column(Field field) {
+        return metaData.getMappedColumnName(field);
+    }
+
+    private Object toColumnValue(Field field, Object value) {
+        if (metaData.isSingleValuedRelation(field) && field.getType().isInstance(value)) {
+            return metaDataResolver.apply(LazyProxies.entityClassOf(value)).getIdValue(value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,6 @@
+package miniORM.query;
+
+public enum SortDirection {
+    ASC,
+    DESC
+}
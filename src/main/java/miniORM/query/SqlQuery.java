@@ -0,0 +1,9 @@
+package miniORM.query;
+
+import java.util.List;
+
+/**
+ * Rendered SQL with its parameters in placeholder order.
+ */
+public record SqlQuery(String sql, List<Object> parameters) {
+}
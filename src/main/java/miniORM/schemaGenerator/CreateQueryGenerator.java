@@ -12,24 +12,61 @@ import java.util.*;
 
 public class CreateQueryGenerator {
 
-    private static final Set<String> createdJoinTables = new HashSet<>();
-
     public static List<String> generateCreateQueries(Set<Class<?>> entityClasses) {
         List<String> queries = new ArrayList<>();
+        queries.addAll(generateTableQueries(entityClasses));
+        queries.addAll(generateJoinTableQueries(entityClasses));
+        return queries;
+    }
 
+    /**
+     * Generates the CREATE TABLE queries of the entity tables only.
+     */
+    public static List<String> generateTableQueries(Set<Class<?>> entityClasses) {
+        List<String> queries = new ArrayList<>();
         for (Class<?> clazz : entityClasses) {
-            EntityMetaData metaData;
-            try {
-                metaData = new EntityMetaData(clazz);
-            } catch (OrmException e) {
-                throw new OrmException("Invalid entity class: " + clazz.getName(), e);
-            }
-            queries.add(buildMainTable(metaData));
-            queries.addAll(buildJoinTables(metaData));
+            queries.add(buildMainTable(toMetaData(clazz)));
+        }
+        return queries;
+    }
+
+    /**
+     * Generates the CREATE TABLE queries of the {@code @ManyToMany} join tables; both entity tables must exist first.
+     */
+    public static List<String> generateJoinTableQueries(Set<Class<?>> entityClasses) {
+        List<String> queries = new ArrayList<>();
+        Set<String> joinTables = new HashSet<>();
+        for (Class<?> clazz : entityClasses) {
+            queries.addAll(buildJoinTables(toMetaData(clazz), joinTables));
         }
         return queries;
     }
 
+    /**
+     * Returns the names of the {@code @ManyToMany} join tables of the entity classes, as created by
+     * {@link #generateJoinTableQueries(Set)}.
+     */
+    public static Set<String> getJoinTableNames(Set<Class<?>> entityClasses) {
+        Set<String> joinTables = new LinkedHashSet<>();
+        for (Class<?> clazz : entityClasses) {
+            EntityMetaData metaData = toMetaData(clazz);
+            for (Field field : metaData.getCollectionRelationFields()) {
+                if (metaData.isManyToMany(field)) {
+                    joinTables.add(metaData.getJoinTableName(toMetaData(metaData.getCollectionElementType(field))));
+                }
+            }
+        }
+        return joinTables;
+    }
+
+    private static EntityMetaData toMetaData(Class<?> clazz) {
+        try {
+            return new EntityMetaData(clazz);
+        } catch (OrmException e) {
+            throw new OrmException("Invalid entity class: " + clazz.getName(), e);
+        }
+    }
+
     static String buildMainTable(EntityMetaData metaData) {
         String tableName = metaData.getTableName().toUpperCase();
 
@@ -94,7 +131,7 @@ public class CreateQueryGenerator {
         return "CREATE TABLE IF NOT EXISTS " + tableName + " (" + fullColumns + ")";
     }
 
-    static List<String> buildJoinTables(EntityMetaData metaData) {
+    static List<String> buildJoinTables(EntityMetaData metaData, Set<String> createdJoinTables) {
         List<String> joinQueries = new ArrayList<>();
 
         for (Field field : metaData.getAllRelationFields()) {
@@ -113,27 +150,26 @@ public class CreateQueryGenerator {
                 throw new OrmException("Failed to get metadata for related entity: " + genericClass.getName(), e);
             }
 
-            List<String> tables = Arrays.asList(metaData.getTableName().toUpperCase(), targetMeta.getTableName().toUpperCase());
-            Collections.sort(tables);
-            String joinTableName = tables.get(0) + "_" + tables.get(1);
+            String joinTableName = metaData.getJoinTableName(targetMeta);
 
-            if (createdJoinTables.contains(joinTableName)) {
+            if (!createdJoinTables.add(joinTableName)) {
                 continue;
             }
-            createdJoinTables.add(joinTableName);
 
-            String pkThis = metaData.getIdColumnName().toUpperCase();
-            String pkOther = targetMeta.getIdColumnName().toUpperCase();
+            // Order both sides by table name, so either owner produces the same table
+            boolean thisFirst = metaData.getTableName().compareTo(targetMeta.getTableName()) <= 0;
+            EntityMetaData first = thisFirst ? metaData : targetMeta;
+            EntityMetaData second = thisFirst ? targetMeta : metaData;
 
-            String columnThis = tables.get(0) + "_" + pkThis;
-            String columnOther = tables.get(1) + "_" + pkOther;
+            String columnFirst = first.getJoinTableColumnName();
+            String columnSecond = second.getJoinTableColumnName();
 
             String joinTableQuery = "CREATE TABLE IF NOT EXISTS " + joinTableName + " (" +
-                    columnThis + " BIGINT NOT NULL, " +
-                    columnOther + " BIGINT NOT NULL, " +
-                    "PRIMARY KEY (" + columnThis + ", " + columnOther + "), " +
-                    "FOREIGN KEY (" + columnThis + ") REFERENCES " + tables.get(0) + "(" + pkThis + "), " +
-                    "FOREIGN KEY (" + columnOther + ") REFERENCES " + tables.get(1) + "(" + pkOther + ")" +
+                    columnFirst + " BIGINT NOT NULL, " +
+                    columnSecond + " BIGINT NOT NULL, " +
+                    "PRIMARY KEY (" + columnFirst + ", " + columnSecond + "), " +
+                    "FOREIGN KEY (" + columnFirst + ") REFERENCES " + first.getTableName() + "(" + first.getIdColumnName() + "), " +
+                    "FOREIGN KEY (" + columnSecond + ") REFERENCES " + second.getTableName() + "(" + second.getIdColumnName() + ")" +
                     ")";
 
             joinQueries.add(joinTableQuery);
@@ -150,8 +186,4 @@ public class CreateQueryGenerator {
         return field.getName();
     }
 
-    public static Set<String> getCreatedJoinTables() {
-        return createdJoinTables;
-    }
-
 }
@@ -1,61 +1,80 @@
 package miniORM.schemaGenerator;
 
 import miniORM.exception.OrmDatabaseException;
-import miniORM.exception.OrmException;
+import miniORM.metaData.EntityGraph;
 import miniORM.metaData.EntityMetaData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Field;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Drops all tables in the database, including join tables.
+ * <p>
+ * Join tables go first, then the entity tables in reverse foreign key order, so no table is dropped while another
+ * one still references it. Tables on a reference cycle are dropped with {@code CASCADE}. Any failure aborts the drop.
  */
 public class DropQueryGenerator {
 
     private static final Logger logger = LoggerFactory.getLogger(DropQueryGenerator.class);
 
     public static void dropAllTables(Statement statement) {
+        Set<Class<?>> allEntities = EntityUtil.getAllEntities();
+        Map<Class<?>, EntityMetaData> metaData = new HashMap<>();
+        for (Class<?> clazz : allEntities) {
+            metaData.put(clazz, new EntityMetaData(clazz));
+        }
+
         try {
             statement.execute("SET REFERENTIAL_INTEGRITY FALSE");
-
-            // Drop join tables first
-            Set<String> joinTables = CreateQueryGenerator.getCreatedJoinTables();
-            for (String joinTable : joinTables) {
-                try {
-                    statement.execute("DROP TABLE IF EXISTS " + joinTable);
+            try {
+                // Join tables reference both sides, so they go first
+                for (String joinTable : CreateQueryGenerator.getJoinTableNames(allEntities)) {
+                    dropTable(statement, joinTable.toUpperCase(), false);
                     logger.info("Dropped join table: {}", joinTable);
-                } catch (Exception e) {
-                    logger.warn("Failed to drop join table {}: {}", joinTable, e.getMessage());
                 }
-            }
-            joinTables.clear();
-
-            // Drop entity tables
-            Set<Class<?>> allEntities = EntityUtil.getAllEntities();
-            for (Class<?> clazz : allEntities) {
-                EntityMetaData metaData;
-                try {
-                    metaData = new EntityMetaData(clazz);
-                } catch (OrmException e) {
-                    logger.warn("Skipping class {} as it is not a valid entity: {}", clazz.getName(), e.getMessage());
-                    continue;
-                }
-                String tableName = metaData.getTableName().toUpperCase();
-                try {
-                    statement.execute("DROP TABLE IF EXISTS " + tableName);
-                    logger.info("Dropped table: {}", tableName);
-                } catch (Exception e) {
-                    logger.warn("Failed to drop table {}: {}", tableName, e.getMessage());
+
+                List<List<Class<?>>> levels = EntityGraph.dependencyLevels(allEntities, metaData::get);
+                for (int i = levels.size() - 1; i >= 0; i--) {
+                    List<Class<?>> level = levels.get(i);
+                    boolean cyclic = isCyclic(level, metaData);
+                    for (Class<?> clazz : level) {
+                        String tableName = metaData.get(clazz).getTableName().toUpperCase();
+                        dropTable(statement, tableName, cyclic);
+                        logger.info("Dropped table: {}", tableName);
+                    }
                 }
+            } finally {
+                statement.execute("SET REFERENTIAL_INTEGRITY TRUE");
             }
-
-            statement.execute("SET REFERENTIAL_INTEGRITY TRUE");
             logger.info("All tables dropped successfully!");
-        } catch (Exception e) {
+        } catch (SQLException e) {
             logger.error("Error while dropping tables.", e);
             throw new OrmDatabaseException("Failed to drop all tables.", e);
         }
     }
+
+    private static void dropTable(Statement statement, String tableName, boolean cascade) throws SQLException {
+        statement.execute("DROP TABLE IF EXISTS " + tableName + (cascade ? " CASCADE" : ""));
+    }
+
+    /**
+     * Whether classes of the level reference each other, which only happens in the final level of a cycle.
+     */
+    private static boolean isCyclic(List<Class<?>> level, Map<Class<?>, EntityMetaData> metaData) {
+        for (Class<?> clazz : level) {
+            for (Field field : metaData.get(clazz).getSingleValuedRelationFields()) {
+                if (field.getType() != clazz && level.contains(field.getType())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 }
@@ -5,31 +5,129 @@ import miniORM.annotation.Relation.ManyToOne;
 import miniORM.annotation.Relation.OneToMany;
 import miniORM.annotation.Relation.OneToOne;
 import miniORM.annotation.Relation.ManyToMany;
+import miniORM.exception.OrmMappingException;
 
 import org.reflections.Reflections;
 import org.reflections.scanners.TypeAnnotationsScanner;
 import org.reflections.util.ClasspathHelper;
 import org.reflections.util.ConfigurationBuilder;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Field;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 public class EntityUtil {
 
-    private static String basePackage;
+    /**
+     * Classpath resource listing the fully qualified names of the {@code @Entity} classes, one per line,
+     * written at build time by {@code miniORM.processor.EntityIndexProcessor}.
+     * <p>
+     * Once any index is on the classpath, only the indexed entities are loaded, so every jar or directory holding
+     * entities must be built with the processor. The MiniORM jar itself leaves out the index of its demo entities.
+     */
+    public static final String INDEX_RESOURCE = "META-INF/miniorm/entities";
 
-    static {
-        // Find the base package at class loading time
-        basePackage = findEntityPackage();
-    }
+    // Resolved on first use: from the index if there is one, otherwise by a single classpath scan
+    private static volatile Set<Class<?>> entities;
 
     /**
      * Scan and return all classes annotated with @Entity
      */
     public static Set<Class<?>> entityScanner() {
-        Reflections reflections = new Reflections(basePackage);
-        return reflections.getTypesAnnotatedWith(Entity.class);
+        return new HashSet<>(entities());
+    }
+
+    private static Set<Class<?>> entities() {
+        Set<Class<?>> result = entities;
+        if (result == null) {
+            synchronized (EntityUtil.class) {
+                result = entities;
+                if (result == null) {
+                    result = loadIndex();
+                    if (result.isEmpty()) {
+                        result = scanClasspath();
+                    }
+                    entities = result = Collections.unmodifiableSet(result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads the entity classes listed by every index resource on the classpath, or none if there is no index.
+     */
+    private static Set<Class<?>> loadIndex() {
+        ClassLoader classLoader = EntityUtil.class.getClassLoader();
+        Set<Class<?>> indexed = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> resources = classLoader.getResources(INDEX_RESOURCE);
+            while (resources.hasMoreElements()) {
+                URL resource = resources.nextElement();
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(resource.openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String className = line.trim();
+                        if (!className.isEmpty() && !className.startsWith("#")) {
+                            indexed.add(loadEntityClass(className, classLoader, resource));
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read entity index " + INDEX_RESOURCE, e);
+        }
+        return indexed;
+    }
+
+    private static Class<?> loadEntityClass(String className, ClassLoader classLoader, URL index) {
+        try {
+            Class<?> clazz = Class.forName(className, false, classLoader);
+            if (!clazz.isAnnotationPresent(Entity.class)) {
+                throw new OrmMappingException(className + " listed in " + index + " is not an @Entity; rebuild to regenerate the index");
+            }
+            return clazz;
+        } catch (ClassNotFoundException e) {
+            throw new OrmMappingException(className + " listed in " + index + " does not exist; rebuild to regenerate the index", e);
+        }
+    }
+
+    /**
+     * Without an index, finds the @Entity classes in the package of the first one found on the classpath
+     * and its subpackages, with one scan of the whole classpath.
+     */
+    private static Set<Class<?>> scanClasspath() {
+        Reflections reflections = new Reflections(
+                new ConfigurationBuilder()
+                        .setUrls(ClasspathHelper.forJavaClassPath())
+                        .setScanners(new TypeAnnotationsScanner())
+        );
+
+        Set<Class<?>> found = reflections.getTypesAnnotatedWith(Entity.class);
+
+        if (found.isEmpty()) {
+            throw new IllegalStateException("No @Entity class found!");
+        }
+
+        String basePackage = found.iterator().next().getPackageName();
+        Set<Class<?>> inPackage = new HashSet<>();
+        for (Class<?> clazz : found) {
+            String packageName = clazz.getPackageName();
+            if (packageName.equals(basePackage) || packageName.startsWith(basePackage + ".")) {
+                inPackage.add(clazz);
+            }
+        }
+        return inPackage;
     }
 
     /**
@@ -38,7 +136,7 @@ public class EntityUtil {
      */
     public static Set<Class<?>> findEntitiesWithRelations() {
         Set<Class<?>> entitiesWithRelations = new HashSet<>();
-        for (Class<?> clazz : entityScanner()) {
+        for (Class<?> clazz : entities()) {
             if (hasAnyRelationField(clazz)) {
                 entitiesWithRelations.add(clazz);
             }
@@ -51,7 +149,7 @@ public class EntityUtil {
      */
     public static Set<Class<?>> findEntitiesWithoutRelations() {
         Set<Class<?>> entitiesWithoutRelations = new HashSet<>();
-        for (Class<?> clazz : entityScanner()) {
+        for (Class<?> clazz : entities()) {
             if (!hasAnyRelationField(clazz)) {
                 entitiesWithoutRelations.add(clazz);
             }
@@ -72,29 +170,7 @@ public class EntityUtil {
         return false;
     }
 
-    /**
-     * Find the base package by scanning the entire classpath and finding the first @Entity class
-     */
-    private static String findEntityPackage() {
-        Reflections reflections = new Reflections(
-                new ConfigurationBuilder()
-                        .setUrls(ClasspathHelper.forJavaClassPath())
-                        .setScanners(new TypeAnnotationsScanner())
-        );
-
-        Set<Class<?>> entities = reflections.getTypesAnnotatedWith(Entity.class);
-
-        if (entities.isEmpty()) {
-            throw new IllegalStateException("No @Entity class found!");
-        }
-
-        return entities.iterator().next().getPackageName();
-    }
-
      static Set<Class<?>> getAllEntities() {
-        Set<Class<?>> allEntities = new HashSet<>();
-        allEntities.addAll(findEntitiesWithoutRelations());
-        allEntities.addAll(findEntitiesWithRelations());
-        return allEntities;
+        return entityScanner();
     }
 }
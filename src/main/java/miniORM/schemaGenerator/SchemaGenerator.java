@@ -1,16 +1,28 @@
 package miniORM.schemaGenerator;
 
+import miniORM.cache.SecondLevelCache;
 import miniORM.exception.OrmDatabaseException;
+import miniORM.metaData.EntityGraph;
 import miniORM.metaData.EntityMetaData;
 import miniORM.db.DataSourceProvider;
 import miniORM.schemaGenerator.config.SchemaGenerationStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class SchemaGenerator {
 
@@ -27,20 +39,29 @@ public class SchemaGenerator {
      * Main entry point to initialize or update database schema.
      */
     public static void initializeDatabase(SchemaGenerationStrategy strategy) {
-        try (Connection connection = DataSourceProvider.getDataSource().getConnection();
+        DataSource dataSource = DataSourceProvider.getDataSource();
+        try (Connection connection = dataSource.getConnection();
              Statement statement = connection.createStatement()) {
 
             switch (strategy) {
                 case CREATE:
                     DropQueryGenerator.dropAllTables(statement);
+                    // Cached rows of the dropped tables must not outlive them
+                    SecondLevelCache.shared().clear();
 
-                    Set<Class<?>> parents = EntityUtil.findEntitiesWithoutRelations();
-                    List<String> parentQueries = buildCreateTableQueries(parents);
-                    executeQueries(statement, parentQueries, "Parent tables created.");
+                    // Every wave only references the tables of earlier waves, so a wave's tables are independent
+                    Set<Class<?>> entities = EntityUtil.getAllEntities();
+                    Map<Class<?>, EntityMetaData> metaData = new HashMap<>();
+                    List<List<Class<?>>> waves = EntityGraph.dependencyLevels(entities,
+                            clazz -> metaData.computeIfAbsent(clazz, EntityMetaData::new));
+                    for (List<Class<?>> wave : waves) {
+                        executeWave(dataSource, connection, CreateQueryGenerator.generateTableQueries(new LinkedHashSet<>(wave)));
+                    }
+                    logger.info("Entity tables created in {} waves.", waves.size());
 
-                    Set<Class<?>> children = EntityUtil.findEntitiesWithRelations();
-                    List<String> childQueries = buildCreateTableQueries(children);
-                    executeQueries(statement, childQueries, "Child and join tables created.");
+                    // Join tables reference both sides, so they go last
+                    executeWave(dataSource, connection, CreateQueryGenerator.generateJoinTableQueries(entities));
+                    logger.info("Join tables created.");
                     break;
 
                 case UPDATE:
@@ -61,12 +82,57 @@ public class SchemaGenerator {
     }
 
     /**
-     * Utility to execute a list of queries and log a message.
+     * Executes independent DDL statements: on the given connection if there is only one, otherwise spread over
+     * as many pooled connections as the pool can spare, each running its share as one batch.
      */
-    private static void executeQueries(Statement statement, List<String> queries, String successMessage) throws Exception {
-        for (String q : queries) {
-            statement.execute(q);
+    private static void executeWave(DataSource dataSource, Connection connection, List<String> queries) throws Exception {
+        // The caller already holds one connection of the pool
+        int workers = Math.min(queries.size(), DataSourceProvider.getMaximumPoolSize(dataSource) - 1);
+        if (workers <= 1) {
+            executeBatch(connection, queries);
+            return;
+        }
+
+        List<List<String>> shares = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            shares.add(new ArrayList<>());
+        }
+        for (int i = 0; i < queries.size(); i++) {
+            shares.get(i % workers).add(queries.get(i));
+        }
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> results = new ArrayList<>(workers);
+            for (List<String> share : shares) {
+                results.add(executor.submit(() -> {
+                    try (Connection pooled = dataSource.getConnection()) {
+                        executeBatch(pooled, share);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        }
+    }
+
+    private static void executeBatch(Connection connection, List<String> queries) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (queries.size() > 1 && connection.getMetaData().supportsBatchUpdates()) {
+                for (String q : queries) {
+                    statement.addBatch(q);
+                }
+                statement.executeBatch();
+            } else {
+                for (String q : queries) {
+                    statement.execute(q);
+                }
+            }
         }
-        logger.info(successMessage);
     }
 }
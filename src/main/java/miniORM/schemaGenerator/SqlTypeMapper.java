@@ -2,6 +2,8 @@ package miniORM.schemaGenerator;
 
 import miniORM.exception.OrmMappingException;
 
+import java.sql.Types;
+
 public class SqlTypeMapper {
     public static String mapJavaTypeToSqlType(Class<?> type) {
         if (type == String.class) return "VARCHAR(255)";
@@ -21,4 +23,26 @@ public class SqlTypeMapper {
 
         throw new OrmMappingException("Unsupported Java type for SQL mapping: " + type.getName());
     }
+
+    /**
+     * Returns the {@link Types} code of the column type {@link #mapJavaTypeToSqlType} maps the Java type to.
+     */
+    public static int mapJavaTypeToJdbcType(Class<?> type) {
+        if (type == String.class) return Types.VARCHAR;
+        if (type == int.class || type == Integer.class) return Types.INTEGER;
+        if (type == long.class || type == Long.class) return Types.BIGINT;
+        if (type == boolean.class || type == Boolean.class) return Types.BOOLEAN;
+        if (type == double.class || type == Double.class) return Types.DOUBLE;
+        if (type == float.class || type == Float.class) return Types.FLOAT;
+        if (type == short.class || type == Short.class) return Types.SMALLINT;
+        if (type == byte.class || type == Byte.class) return Types.TINYINT;
+        if (type == char.class || type == Character.class) return Types.CHAR;
+        if (type == java.time.LocalDate.class) return Types.DATE;
+        if (type == java.time.LocalDateTime.class) return Types.TIMESTAMP;
+        if (type == java.time.LocalTime.class) return Types.TIME;
+        if (type == java.math.BigDecimal.class) return Types.DECIMAL;
+        if (type == java.util.UUID.class) return Types.OTHER;
+
+        throw new OrmMappingException("Unsupported Java type for SQL mapping: " + type.getName());
+    }
 }
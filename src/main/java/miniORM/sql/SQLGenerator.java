@@ -1,25 +1,49 @@
 package miniORM.sql;
 
-import miniORM.annotation.Relation.JoinColumn;
-import miniORM.annotation.Relation.ManyToOne;
-import miniORM.exception.OrmMappingException;
 import miniORM.metaData.EntityMetaData;
 
 import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.StringJoiner;
+import java.util.function.Function;
 
 public class SQLGenerator {
 
+    public static final String OWNER_KEY_LABEL = "MTM_OWNER_KEY";
+
+    /**
+     * Builds every CRUD statement of an entity at once, so callers can cache the result per class.
+     * The resolver supplies the metadata of related entities for the JOIN fetch statements.
+     * Statements provided by the entity's generated mapper are taken as they are.
+     */
+    public static Map<StatementKind, String> buildStatements(EntityMetaData metaData,
+                                                             Function<Class<?>, EntityMetaData> metaDataResolver) {
+        Map<StatementKind, String> statements = new EnumMap<>(StatementKind.class);
+        if (metaData.getMapper() != null) {
+            statements.putAll(metaData.getMapper().getStatements());
+        }
+        statements.computeIfAbsent(StatementKind.INSERT, k -> buildInsertQuery(metaData));
+        statements.computeIfAbsent(StatementKind.UPDATE, k -> buildUpdateQuery(metaData));
+        statements.computeIfAbsent(StatementKind.SELECT_BY_ID, k -> buildSelectById(metaData));
+        statements.computeIfAbsent(StatementKind.SELECT_ALL, k -> buildSelectAllQuery(metaData));
+        statements.computeIfAbsent(StatementKind.DELETE, k -> buildDeleteQuery(metaData));
+        statements.computeIfAbsent(StatementKind.JOIN_SELECT_BY_ID, k -> buildJoinSelectById(metaData, metaDataResolver));
+        statements.computeIfAbsent(StatementKind.JOIN_SELECT_ALL, k -> buildJoinSelectAllQuery(metaData, metaDataResolver));
+        statements.computeIfAbsent(StatementKind.SELECT_PAGE, k -> buildSelectPageQuery(metaData));
+        statements.computeIfAbsent(StatementKind.SELECT_PAGE_AFTER_ID, k -> buildSelectPageAfterIdQuery(metaData));
+        return Collections.unmodifiableMap(statements);
+    }
+
     public static String buildInsertQuery(EntityMetaData metaData) {
         StringJoiner columns = new StringJoiner(",");
         StringJoiner placeholders = new StringJoiner(",");
 
-        for (Field field : metaData.getColumnFields()) {
-            if (!metaData.isGeneratedValue(field)) {
-                String columnName = getColumnNameForField(field, metaData);
-                columns.add(columnName);
-                placeholders.add("?");
-            }
+        for (Field field : metaData.getInsertFields()) {
+            columns.add(metaData.getMappedColumnName(field));
+            placeholders.add("?");
         }
 
         return "INSERT INTO " + metaData.getTableName() + " (" + columns + ") VALUES (" + placeholders + ")";
@@ -29,19 +53,115 @@ public class SQLGenerator {
         return "SELECT * FROM " + metaData.getTableName() + " WHERE " + metaData.getIdColumnName() + " = ?";
     }
 
+    public static String buildSelectByIdsQuery(EntityMetaData metaData, int idCount) {
+        return "SELECT * FROM " + metaData.getTableName() + " WHERE " + metaData.getIdColumnName() + " IN (" + placeholders(idCount) + ")";
+    }
+
+    /**
+     * Selects the rows of an entity whose foreign key column is one of the given values,
+     * used to load {@code @OneToMany} collections of many owners at once.
+     */
+    public static String buildSelectByForeignKeysQuery(EntityMetaData metaData, String foreignKeyColumn, int keyCount) {
+        return "SELECT * FROM " + metaData.getTableName() + " WHERE " + foreignKeyColumn + " IN (" + placeholders(keyCount) + ")";
+    }
+
+    /**
+     * Selects the targets of a {@code @ManyToMany} collection for many owners at once through the join table.
+     * Each row carries the owner's id under {@link #OWNER_KEY_LABEL} next to the target's columns.
+     */
+    public static String buildSelectManyToManyQuery(EntityMetaData ownerMeta, EntityMetaData targetMeta, int ownerCount) {
+        String ownerColumn = "J." + ownerMeta.getJoinTableColumnName();
+        return "SELECT " + ownerColumn + " AS " + OWNER_KEY_LABEL + ", T.* FROM " + ownerMeta.getJoinTableName(targetMeta) + " J"
+                + " JOIN " + targetMeta.getTableName() + " T ON J." + targetMeta.getJoinTableColumnName() + " = T." + targetMeta.getIdColumnName()
+                + " WHERE " + ownerColumn + " IN (" + placeholders(ownerCount) + ")";
+    }
+
     public static String buildSelectAllQuery(EntityMetaData metaData) {
         return "SELECT * FROM " + metaData.getTableName();
     }
 
+    /**
+     * Selects only the given columns of every row, in the given order.
+     */
+    public static String buildSelectColumnsQuery(EntityMetaData metaData, List<String> columns) {
+        return "SELECT " + String.join(", ", columns) + " FROM " + metaData.getTableName();
+    }
+
+    /**
+     * Selects one page ordered by id; the parameters are the page size and the number of rows to skip.
+     */
+    public static String buildSelectPageQuery(EntityMetaData metaData) {
+        return buildSelectAllQuery(metaData) + " ORDER BY " + metaData.getIdColumnName() + " LIMIT ? OFFSET ?";
+    }
+
+    /**
+     * Selects the page following an id (keyset pagination); the parameters are the last id seen and the page size.
+     * Unlike OFFSET, the cost does not grow with the page number as long as the id column is indexed.
+     */
+    public static String buildSelectPageAfterIdQuery(EntityMetaData metaData) {
+        String idColumn = metaData.getIdColumnName();
+        return buildSelectAllQuery(metaData) + " WHERE " + idColumn + " > ? ORDER BY " + idColumn + " LIMIT ?";
+    }
+
+    /**
+     * Selects the entity together with every eager {@code @ManyToOne}/{@code @OneToOne} target through LEFT JOINs.
+     * The entity's table is aliased {@code T0} and the i-th eager single-valued relation {@code Ti}; every column is
+     * labelled with {@link #columnLabel(String, String)}.
+     */
+    public static String buildJoinSelectAllQuery(EntityMetaData metaData, Function<Class<?>, EntityMetaData> metaDataResolver) {
+        String rootAlias = tableAlias(0);
+        StringJoiner columns = new StringJoiner(", ");
+        StringBuilder joins = new StringBuilder();
+
+        addAliasedColumns(columns, metaData, rootAlias);
+
+        List<Field> relations = metaData.getEagerSingleValuedRelationFields();
+        for (int i = 0; i < relations.size(); i++) {
+            Field relation = relations.get(i);
+            EntityMetaData targetMeta = metaDataResolver.apply(relation.getType());
+            String alias = tableAlias(i + 1);
+
+            addAliasedColumns(columns, targetMeta, alias);
+            joins.append(" LEFT JOIN ").append(targetMeta.getTableName()).append(' ').append(alias)
+                    .append(" ON ").append(rootAlias).append('.').append(metaData.getJoinColumnName(relation))
+                    .append(" = ").append(alias).append('.').append(targetMeta.getIdColumnName());
+        }
+
+        return "SELECT " + columns + " FROM " + metaData.getTableName() + " " + rootAlias + joins;
+    }
+
+    public static String buildJoinSelectById(EntityMetaData metaData, Function<Class<?>, EntityMetaData> metaDataResolver) {
+        return buildJoinSelectAllQuery(metaData, metaDataResolver)
+                + " WHERE " + tableAlias(0) + "." + metaData.getIdColumnName() + " = ?";
+    }
+
+    public static String tableAlias(int index) {
+        return "T" + index;
+    }
+
+    public static String columnLabel(String tableAlias, String columnName) {
+        return tableAlias + "_" + columnName;
+    }
+
+    private static void addAliasedColumns(StringJoiner columns, EntityMetaData metaData, String alias) {
+        for (Field field : metaData.getColumnFields()) {
+            String column = metaData.getMappedColumnName(field);
+            columns.add(alias + "." + column + " AS " + columnLabel(alias, column));
+        }
+    }
+
     public static String buildUpdateQuery(EntityMetaData metaData) {
+        return buildUpdateQuery(metaData, metaData.getUpdateFields());
+    }
+
+    /**
+     * Updates only the given column fields of one row; the last parameter is the id.
+     */
+    public static String buildUpdateQuery(EntityMetaData metaData, List<Field> fields) {
         StringJoiner assignments = new StringJoiner(",");
-        Field idField = metaData.getIdField();
 
-        for (Field field : metaData.getColumnFields()) {
-            if (!field.equals(idField)) {
-                String columnName = getColumnNameForField(field, metaData);
-                assignments.add(columnName + " = ?");
-            }
+        for (Field field : fields) {
+            assignments.add(metaData.getMappedColumnName(field) + " = ?");
         }
 
         return "UPDATE " + metaData.getTableName() + " SET " + assignments + " WHERE " + metaData.getIdColumnName() + " = ?";
@@ -51,20 +171,15 @@ public class SQLGenerator {
         return "DELETE FROM " + metaData.getTableName() + " WHERE " + metaData.getIdColumnName() + " = ?";
     }
 
-    private static String getColumnNameForField(Field field, EntityMetaData metaData) {
-        if (field.isAnnotationPresent(ManyToOne.class)) {
-            JoinColumn joinColumn = field.getAnnotation(JoinColumn.class);
-            if (joinColumn != null && !joinColumn.name().isEmpty()) {
-                return joinColumn.name();
-            } else {
-                return field.getName() + "_id";
-            }
-        } else {
-            try {
-                return metaData.getColumnName(field);
-            } catch (Exception e) {
-                throw new OrmMappingException("Failed to get column name for field: " + field.getName(), e);
-            }
+    public static String buildDeleteByIdsQuery(EntityMetaData metaData, int idCount) {
+        return "DELETE FROM " + metaData.getTableName() + " WHERE " + metaData.getIdColumnName() + " IN (" + placeholders(idCount) + ")";
+    }
+
+    private static String placeholders(int count) {
+        StringJoiner placeholders = new StringJoiner(",");
+        for (int i = 0; i < count; i++) {
+            placeholders.add("?");
         }
+        return placeholders.toString();
     }
 }
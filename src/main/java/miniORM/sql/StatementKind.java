@@ -0,0 +1,16 @@
+package miniORM.sql;
+
+/**
+ * The per-entity CRUD statements generated by {@link SQLGenerator}.
+ */
+public enum StatementKind {
+    INSERT,
+    UPDATE,
+    SELECT_BY_ID,
+    SELECT_ALL,
+    DELETE,
+    JOIN_SELECT_BY_ID,
+    JOIN_SELECT_ALL,
+    SELECT_PAGE,
+    SELECT_PAGE_AFTER_ID
+}
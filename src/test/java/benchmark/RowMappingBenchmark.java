@@ -0,0 +1,120 @@
+package benchmark;
+
+import demo.model.Customer;
+import demo.model.Order;
+import miniORM.metaData.EntityMetaData;
+import miniORM.metaData.FieldAccessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.List;
+
+/**
+ * Compares row-mapping throughput of core reflection ({@code Constructor.newInstance} + {@code Field.set}),
+ * method handles adapted for {@code invokeExact} as {@link FieldAccessor} builds them for entities without a
+ * generated mapper, and the accessors {@link EntityMetaData} actually hands out, which go through the generated
+ * mapper when the build produced one.
+ * <p>
+ * Rows are pre-built value arrays, so the numbers isolate entity instantiation and field writes from JDBC.
+ * Run with: {@code mvn test-compile} then
+ * {@code java -cp target/classes:target/test-classes:<deps> benchmark.RowMappingBenchmark}.
+ */
+public class RowMappingBenchmark {
+
+    private static final int ROWS = 1_000_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Throwable {
+        Customer customer = new Customer();
+        customer.setId(1L);
+
+        run("Customer", Customer.class, new Object[]{1L, "Ali", "Mohammadi"});
+        run("Order", Order.class, new Object[]{1L, "Book", customer});
+    }
+
+    private static void run(String label, Class<?> clazz, Object[] row) throws Throwable {
+        EntityMetaData metaData = new EntityMetaData(clazz);
+        List<Field> fields = metaData.getColumnFields();
+        FieldAccessor[] accessors = fields.stream().map(metaData::getAccessor).toArray(FieldAccessor[]::new);
+        Field[] reflectiveFields = fields.toArray(new Field[0]);
+        for (Field field : reflectiveFields) {
+            field.setAccessible(true);
+        }
+        Constructor<?> constructor = clazz.getDeclaredConstructor();
+
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+        MethodHandle constructorHandle = lookup.findConstructor(clazz, MethodType.methodType(void.class))
+                .asType(MethodType.methodType(Object.class));
+        MethodHandle[] setters = new MethodHandle[reflectiveFields.length];
+        for (int i = 0; i < setters.length; i++) {
+            setters[i] = lookup.unreflectSetter(reflectiveFields[i])
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+        }
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            mapReflective(constructor, reflectiveFields, row);
+            mapWithMethodHandles(constructorHandle, setters, row);
+            mapWithAccessors(metaData, accessors, row);
+        }
+
+        long reflectiveNanos = 0;
+        long methodHandleNanos = 0;
+        long accessorNanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            reflectiveNanos += mapReflective(constructor, reflectiveFields, row);
+            methodHandleNanos += mapWithMethodHandles(constructorHandle, setters, row);
+            accessorNanos += mapWithAccessors(metaData, accessors, row);
+        }
+
+        System.out.printf("%-8s reflection: %,12.0f rows/s   method handles: %,12.0f rows/s   %s: %,12.0f rows/s%n",
+                label, throughput(reflectiveNanos), throughput(methodHandleNanos),
+                metaData.getMapper() != null ? "generated mapper" : "entity metadata", throughput(accessorNanos));
+    }
+
+    private static long mapReflective(Constructor<?> constructor, Field[] fields, Object[] row) throws Exception {
+        long start = System.nanoTime();
+        for (int r = 0; r < ROWS; r++) {
+            Object entity = constructor.newInstance();
+            for (int i = 0; i < fields.length; i++) {
+                fields[i].set(entity, row[i]);
+            }
+            sink = entity;
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long mapWithMethodHandles(MethodHandle constructor, MethodHandle[] setters, Object[] row)
+            throws Throwable {
+        long start = System.nanoTime();
+        for (int r = 0; r < ROWS; r++) {
+            Object entity = (Object) constructor.invokeExact();
+            for (int i = 0; i < setters.length; i++) {
+                setters[i].invokeExact(entity, row[i]);
+            }
+            sink = entity;
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long mapWithAccessors(EntityMetaData metaData, FieldAccessor[] accessors, Object[] row) {
+        long start = System.nanoTime();
+        for (int r = 0; r < ROWS; r++) {
+            Object entity = metaData.newInstance();
+            for (int i = 0; i < accessors.length; i++) {
+                accessors[i].set(entity, row[i]);
+            }
+            sink = entity;
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static double throughput(long nanos) {
+        return (double) ROWS * MEASURED_ROUNDS / (nanos / 1_000_000_000.0);
+    }
+}
@@ -1,14 +1,44 @@
 package test;
 
+import miniORM.cache.CacheStatistics;
+import miniORM.cache.LruCacheRegion;
+import miniORM.cache.SecondLevelCache;
+import miniORM.core.AsyncEntityManager;
 import miniORM.core.EntityManager;
+import miniORM.core.FetchMode;
+import miniORM.core.FlushMode;
+import miniORM.core.LazyProxies;
 import miniORM.db.DataSourceProvider;
+import miniORM.exception.OrmException;
+import miniORM.metaData.EntityGraph;
+import miniORM.metaData.EntityMapper;
+import miniORM.metaData.EntityMetaData;
+import miniORM.query.Predicates;
+import miniORM.query.SortDirection;
+import miniORM.schemaGenerator.EntityUtil;
 import miniORM.schemaGenerator.SchemaGenerator;
+import miniORM.sql.SQLGenerator;
+import miniORM.sql.StatementKind;
+import demo.model.Category;
 import demo.model.Customer;
 import demo.model.Order;
+import demo.model.Payment;
+import demo.model.Reading;
+import demo.model.Shipment;
+import demo.repository.Repository;
 import miniORM.schemaGenerator.config.SchemaGenerationStrategy;
 import org.junit.jupiter.api.*;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -16,6 +46,17 @@ import static org.junit.jupiter.api.Assertions.*;
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 public class OrmIntegrationTest {
 
+    record OrderSummary(Long id, String product) {
+    }
+
+    interface CustomerName {
+        String getName();
+
+        default String greeting() {
+            return "Hello " + getName();
+        }
+    }
+
     private EntityManager entityManager;
 
     @BeforeAll
@@ -104,4 +145,1107 @@ public class OrmIntegrationTest {
         List<Customer> all = entityManager.findAll(Customer.class);
         assertTrue(all.size() >= 2, "There should be at least 2 customers in the database.");
     }
+
+    @Test
+    @org.junit.jupiter.api.Order(6)
+    void saveAllOrders_shouldBatchInsertAndBackFillIds() {
+        Customer customer = new Customer();
+        customer.setName("Reza Karimi");
+        entityManager.save(customer);
+
+        entityManager.setBatchSize(3);
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Order order = new Order();
+            order.setProduct("Item " + i);
+            order.setCustomer(customer);
+            orders.add(order);
+        }
+        entityManager.saveAll(orders);
+        entityManager.setBatchSize(EntityManager.DEFAULT_BATCH_SIZE);
+
+        for (Order order : orders) {
+            assertNotNull(order.getId(), "Every batched order should get a generated ID.");
+            Order found = entityManager.findById(Order.class, order.getId());
+            assertEquals(order.getProduct(), found.getProduct(), "Generated ID should map back to the same row.");
+        }
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(7)
+    void updateAllAndDeleteAllById_shouldApplyToEveryRow() {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Customer customer = new Customer();
+            customer.setName("Bulk " + i);
+            customers.add(customer);
+        }
+        entityManager.saveAll(customers);
+
+        customers.forEach(c -> c.setLastName("Updated"));
+        entityManager.updateAll(customers);
+        for (Customer customer : customers) {
+            assertEquals("Updated", entityManager.findById(Customer.class, customer.getId()).getLastName());
+        }
+
+        List<Long> ids = customers.stream().map(Customer::getId).toList();
+        entityManager.deleteAllById(Customer.class, ids.subList(0, 2));
+        entityManager.deleteAllById(Customer.class, ids.subList(2, 5), true);
+        for (Long id : ids) {
+            assertNull(entityManager.findById(Customer.class, id), "Customer should be deleted.");
+        }
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(8)
+    void findAllOrders_batchFetchShouldResolveAndShareCustomers() {
+        Customer customer = new Customer();
+        customer.setName("Shared Customer");
+        entityManager.save(customer);
+
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Order order = new Order();
+            order.setProduct("Shared " + i);
+            order.setCustomer(customer);
+            orders.add(order);
+        }
+        entityManager.saveAll(orders);
+
+        List<Order> batched = entityManager.findAll(Order.class, FetchMode.BATCH);
+        List<Order> selected = entityManager.findAll(Order.class, FetchMode.SELECT);
+        assertEquals(selected.size(), batched.size(), "Both fetch modes should return the same rows.");
+
+        List<Order> shared = batched.stream()
+                .filter(o -> o.getProduct().startsWith("Shared "))
+                .toList();
+        assertEquals(3, shared.size());
+        for (Order order : shared) {
+            assertNotNull(order.getCustomer(), "Customer should be resolved by the batch query.");
+            assertEquals("Shared Customer", order.getCustomer().getName());
+            assertSame(shared.get(0).getCustomer(), order.getCustomer(), "Orders of one customer should share it.");
+        }
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(9)
+    void findOrder_joinFetchShouldLoadCustomerInSameQuery() {
+        Customer customer = new Customer();
+        customer.setName("Joined Customer");
+        entityManager.save(customer);
+
+        Order order = new Order();
+        order.setProduct("Lamp");
+        order.setCustomer(customer);
+        entityManager.save(order);
+
+        Order found = entityManager.findById(Order.class, order.getId(), FetchMode.JOIN);
+        assertEquals("Lamp", found.getProduct());
+        assertNotNull(found.getCustomer(), "Customer should be mapped from the joined columns.");
+        assertEquals("Joined Customer", found.getCustomer().getName());
+
+        List<Order> joined = entityManager.findAll(Order.class, FetchMode.JOIN);
+        assertEquals(entityManager.findAll(Order.class).size(), joined.size(), "LEFT JOIN should not drop or duplicate rows.");
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(10)
+    void findPayment_lazyCustomerShouldLoadOnFirstAccess() {
+        Customer customer = new Customer();
+        customer.setName("Lazy Customer");
+        entityManager.save(customer);
+
+        Payment payment = new Payment();
+        payment.setAmount(12.5);
+        payment.setCustomer(customer);
+        entityManager.save(payment);
+
+        Payment found = entityManager.findById(Payment.class, payment.getId());
+        Customer lazyCustomer = found.getCustomer();
+        assertTrue(LazyProxies.isProxy(lazyCustomer), "Lazy relation should be a proxy.");
+        assertEquals(customer.getId(), lazyCustomer.getId(), "Proxy should know its id without loading.");
+        assertFalse(LazyProxies.isInitialized(lazyCustomer), "Reading the id should not load the customer.");
+
+        assertEquals("Lazy Customer", lazyCustomer.getName());
+        assertTrue(LazyProxies.isInitialized(lazyCustomer), "Accessing other state should load the customer.");
+
+        found.setAmount(20.0);
+        entityManager.update(found);
+        assertEquals(customer.getId(), entityManager.findById(Payment.class, payment.getId()).getCustomer().getId(),
+                "Updating through a proxy reference should keep the foreign key.");
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(11)
+    void findCustomers_ordersCollectionShouldBatchLoadForAllCustomers() {
+        Customer first = new Customer();
+        first.setName("Collection A");
+        Customer second = new Customer();
+        second.setName("Collection B");
+        entityManager.saveAll(List.of(first, second));
+
+        List<Order> orders = new ArrayList<>();
+        for (Customer owner : List.of(first, first, second)) {
+            Order order = new Order();
+            order.setProduct("Collected");
+            order.setCustomer(owner);
+            orders.add(order);
+        }
+        entityManager.saveAll(orders);
+
+        List<Customer> customers = entityManager.findAll(Customer.class);
+        Customer loadedFirst = customers.stream().filter(c -> c.getId().equals(first.getId())).findFirst().orElseThrow();
+        Customer loadedSecond = customers.stream().filter(c -> c.getId().equals(second.getId())).findFirst().orElseThrow();
+
+        assertEquals(2, loadedFirst.getOrders().size(), "First customer should have two orders.");
+        assertEquals(1, loadedSecond.getOrders().size(), "Second customer should have one order.");
+        for (Order order : loadedFirst.getOrders()) {
+            assertSame(loadedFirst, order.getCustomer(), "Back-reference should point to the loaded owner.");
+        }
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(12)
+    void session_shouldShareOneInstancePerEntityAndId() {
+        Customer customer = new Customer();
+        customer.setName("Session Customer");
+        entityManager.save(customer);
+
+        Order first = new Order();
+        first.setProduct("Session 1");
+        first.setCustomer(customer);
+        Order second = new Order();
+        second.setProduct("Session 2");
+        second.setCustomer(customer);
+        entityManager.saveAll(List.of(first, second));
+
+        entityManager.runInSession(session -> {
+            Order loadedFirst = session.findById(Order.class, first.getId());
+            Order loadedSecond = session.findById(Order.class, second.getId());
+            assertSame(loadedFirst.getCustomer(), loadedSecond.getCustomer(), "Separate lookups should share the customer.");
+            assertSame(loadedFirst, session.findById(Order.class, first.getId()), "Repeated lookups should return the same instance.");
+        });
+
+        assertNotSame(entityManager.findById(Order.class, first.getId()), entityManager.findById(Order.class, first.getId()),
+                "Without a session every lookup loads a new instance.");
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(13)
+    void secondLevelCache_shouldServeCachedCustomersUntilWritten() {
+        Customer customer = new Customer();
+        customer.setName("Cached Customer");
+        entityManager.save(customer);
+
+        CacheStatistics statistics = entityManager.getSecondLevelCache().getStatistics(Customer.class);
+        statistics.reset();
+
+        Customer first = entityManager.findById(Customer.class, customer.getId());
+        Customer second = entityManager.findById(Customer.class, customer.getId());
+        assertNotSame(first, second, "Cache hits should build a new instance.");
+        assertEquals("Cached Customer", second.getName());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(1, statistics.getHitCount());
+
+        Order order = new Order();
+        order.setProduct("Cached Order");
+        order.setCustomer(customer);
+        entityManager.save(order);
+        Order foundOrder = entityManager.findById(Order.class, order.getId());
+        assertEquals("Cached Customer", foundOrder.getCustomer().getName());
+        assertEquals(2, statistics.getHitCount(), "The order's customer should come from the cache.");
+
+        customer.setName("Renamed Customer");
+        entityManager.update(customer);
+        assertEquals("Renamed Customer", entityManager.findById(Customer.class, customer.getId()).getName(),
+                "Update should invalidate the cached row.");
+
+        entityManager.delete(Order.class, order.getId());
+        entityManager.delete(Customer.class, customer.getId());
+        assertNull(entityManager.findById(Customer.class, customer.getId()), "Delete should invalidate the cached row.");
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(14)
+    void lruCacheRegion_shouldEvictLeastRecentlyUsedAndExpiredRows() {
+        AtomicLong clock = new AtomicLong();
+        LruCacheRegion region = new LruCacheRegion(2, Duration.ofSeconds(10), clock::get);
+
+        region.put(1L, new Object[]{"one"});
+        region.put(2L, new Object[]{"two"});
+        assertNotNull(region.get(1L));
+        region.put(3L, new Object[]{"three"});
+
+        assertNull(region.get(2L), "The least recently used row should be evicted.");
+        assertNotNull(region.get(1L));
+        assertEquals(1, region.getStatistics().getEvictionCount());
+
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertNull(region.get(3L), "Rows should expire after their time to live.");
+        assertEquals(2, region.getStatistics().getEvictionCount());
+        assertEquals(2, region.getStatistics().getHitCount());
+        assertEquals(2, region.getStatistics().getMissCount());
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(15)
+    void stream_shouldMapRowsLazilyAndResolveRelationsPerChunk() throws Exception {
+        Customer customer = new Customer();
+        customer.setName("Stream Customer");
+        entityManager.save(customer);
+
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Order order = new Order();
+            order.setProduct("Stream " + i);
+            order.setCustomer(customer);
+            orders.add(order);
+        }
+        entityManager.saveAll(orders);
+
+        int expected = entityManager.findAll(Order.class).size();
+        entityManager.setFetchSize(3);
+        try (Stream<Order> stream = entityManager.stream(Order.class)) {
+            List<Order> streamed = stream.toList();
+            assertEquals(expected, streamed.size(), "Every row should be streamed.");
+            Order last = streamed.stream()
+                    .filter(order -> order.getId().equals(orders.get(6).getId()))
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals("Stream Customer", last.getCustomer().getName(), "Relations should be resolved.");
+        } finally {
+            entityManager.setFetchSize(EntityManager.DEFAULT_FETCH_SIZE);
+        }
+
+        AtomicInteger visited = new AtomicInteger();
+        entityManager.forEach(Order.class, order -> visited.incrementAndGet());
+        assertEquals(expected, visited.get());
+
+        try (Stream<Order> stream = entityManager.stream(Order.class)) {
+            assertTrue(stream.findFirst().isPresent(), "A partly consumed stream should close cleanly.");
+        }
+
+        // Customers must come from the database, so the first chunk has relations to load
+        entityManager.getSecondLevelCache().clear();
+        var pool = DataSourceProvider.getDataSource().getHikariPoolMXBean();
+        entityManager.setFetchSize(3);
+        try (Stream<Order> stream = entityManager.stream(Order.class)) {
+            assertNotNull(stream.iterator().next());
+            assertEquals(2, pool.getActiveConnections(), "Relations should be loaded beside the open result set.");
+        } finally {
+            entityManager.setFetchSize(EntityManager.DEFAULT_FETCH_SIZE);
+        }
+        assertEquals(0, pool.getActiveConnections(), "Both connections should be returned.");
+        try (var connection = DataSourceProvider.getDataSource().getConnection()) {
+            assertTrue(connection.getAutoCommit(), "The read transaction should restore auto-commit.");
+        }
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(16)
+    void pagination_shouldWalkAllRowsInIdOrder() {
+        List<Long> allIds = entityManager.findAll(Order.class).stream()
+                .map(Order::getId)
+                .sorted()
+                .toList();
+        assertTrue(allIds.size() > 4, "Earlier tests should have left several orders.");
+
+        List<Long> keysetIds = new ArrayList<>();
+        Long lastId = null;
+        List<Order> page;
+        while (!(page = entityManager.findPageAfter(Order.class, lastId, 4)).isEmpty()) {
+            assertTrue(page.size() <= 4);
+            page.forEach(order -> keysetIds.add(order.getId()));
+            lastId = page.get(page.size() - 1).getId();
+        }
+        assertEquals(allIds, keysetIds, "Keyset pages should cover every row once, in id order.");
+
+        Repository<Order> repository = new Repository<>(Order.class, entityManager);
+        List<Long> secondPage = repository.findPage(1, 4).stream().map(Order::getId).toList();
+        assertEquals(allIds.subList(4, Math.min(8, allIds.size())), secondPage);
+        assertNotNull(repository.findPage(1, 4).get(0).getCustomer(), "Relations of a page should be resolved.");
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(17)
+    void query_shouldFilterOrderAndLimitInTheDatabase() {
+        Customer customer = new Customer();
+        customer.setName("Query Customer");
+        entityManager.save(customer);
+
+        List<Order> orders = new ArrayList<>();
+        for (String product : List.of("Query Pen", "Query Ink", "Query Pad", "Query Cap")) {
+            Order order = new Order();
+            order.setProduct(product);
+            order.setCustomer(customer);
+            orders.add(order);
+        }
+        entityManager.saveAll(orders);
+
+        List<Order> found = entityManager.createQuery(Order.class)
+                .where(Predicates.eq("customer", customer))
+                .and(Predicates.like("product", "Query P%").or(Predicates.eq("product", "Query Ink")))
+                .orderBy("product", SortDirection.DESC)
+                .limit(2)
+                .getResultList();
+        assertEquals(List.of("Query Pen", "Query Pad"), found.stream().map(Order::getProduct).toList());
+        assertEquals("Query Customer", found.get(0).getCustomer().getName());
+
+        List<Long> ids = orders.stream().map(Order::getId).toList();
+        assertEquals(4, entityManager.createQuery(Order.class).in("id", ids).count());
+        assertEquals(2, entityManager.createQuery(Order.class).between("id", ids.get(1), ids.get(2)).count());
+        assertEquals(3, entityManager.createQuery(Order.class)
+                .where(Predicates.eq("customer", customer.getId()))
+                .orderBy("id")
+                .offset(1)
+                .getResultList()
+                .size());
+        assertTrue(entityManager.createQuery(Order.class).in("id", List.of()).getResultList().isEmpty());
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(18)
+    void projections_shouldMapSelectedColumnsIntoRecordsAndInterfaces() {
+        Customer customer = new Customer();
+        customer.setName("Projected Customer");
+        entityManager.save(customer);
+
+        Order order = new Order();
+        order.setProduct("Projected Order");
+        order.setCustomer(customer);
+        entityManager.save(order);
+
+        List<OrderSummary> summaries = entityManager.createQuery(Order.class)
+                .where(Predicates.eq("customer", customer))
+                .getResultList(OrderSummary.class);
+        assertEquals(List.of(new OrderSummary(order.getId(), "Projected Order")), summaries);
+
+        List<CustomerName> names = entityManager.createQuery(Customer.class)
+                .where(Predicates.eq("id", customer.getId()))
+                .getResultList(CustomerName.class);
+        assertEquals(1, names.size());
+        assertEquals("Projected Customer", names.get(0).getName());
+        assertEquals("Hello Projected Customer", names.get(0).greeting());
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(19)
+    void inTransaction_shouldShareOneConnectionAndCommitOrRollBackTogether() {
+        Customer committed = entityManager.inTransaction(tx -> {
+            Customer customer = new Customer();
+            customer.setName("Transaction Customer");
+            tx.save(customer);
+
+            Order order = new Order();
+            order.setProduct("Transaction Order");
+            order.setCustomer(customer);
+            tx.save(order);
+
+            assertSame(customer, tx.findById(Customer.class, customer.getId()), "Saved entities should be managed.");
+            assertEquals(1, tx.createQuery(Order.class).where(Predicates.eq("customer", customer)).count(),
+                    "Reads should see the transaction's own writes.");
+            assertEquals(1, DataSourceProvider.getDataSource().getHikariPoolMXBean().getActiveConnections(),
+                    "All operations should share one pooled connection.");
+            return customer;
+        });
+        assertEquals("Transaction Customer", entityManager.findById(Customer.class, committed.getId()).getName());
+
+        List<Long> rolledBack = new ArrayList<>();
+        assertThrows(IllegalStateException.class, () -> entityManager.runInTransaction(tx -> {
+            Customer customer = new Customer();
+            customer.setName("Rolled Back Customer");
+            tx.save(customer);
+            rolledBack.add(customer.getId());
+
+            Customer existing = tx.findById(Customer.class, committed.getId());
+            existing.setName("Rolled Back Name");
+            tx.update(existing);
+            throw new IllegalStateException("abort");
+        }));
+
+        assertNull(entityManager.findById(Customer.class, rolledBack.get(0)), "The insert should be rolled back.");
+        assertEquals("Transaction Customer", entityManager.findById(Customer.class, committed.getId()).getName(),
+                "The update should be rolled back.");
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(20)
+    void statementCache_shouldReusePreparedStatementsAcrossCheckouts() {
+        Order order = new Order();
+        order.setProduct("Statement Cache Order");
+        entityManager.save(order);
+
+        CacheStatistics statistics = entityManager.getStatementCacheStatistics();
+        entityManager.findById(Order.class, order.getId());
+        statistics.reset();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Statement Cache Order", entityManager.findById(Order.class, order.getId()).getProduct());
+        }
+        assertEquals(10, statistics.getHitCount(), "Every lookup should reuse the statement prepared before.");
+        assertEquals(0, statistics.getMissCount());
+        assertEquals(1.0, statistics.getHitRatio());
+
+        // Cached statements are shared across entity managers, their counters are not
+        EntityManager other = new EntityManager(DataSourceProvider.getDataSource());
+        CacheStatistics otherStatistics = other.getStatementCacheStatistics();
+        assertEquals(0, otherStatistics.getHitCount() + otherStatistics.getMissCount(), "A new entity manager should start clean.");
+        other.findById(Order.class, order.getId());
+        assertEquals(1, otherStatistics.getHitCount() + otherStatistics.getMissCount());
+        assertEquals(10, statistics.getHitCount() + statistics.getMissCount(), "Other entity managers should not be counted.");
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(21)
+    void dirtyChecking_shouldWriteOnlyChangedColumns() {
+        Customer customer = new Customer();
+        customer.setName("Dirty Customer");
+        customer.setLastName("Original");
+        entityManager.save(customer);
+
+        entityManager.runInSession(session -> {
+            Customer loaded = session.findById(Customer.class, customer.getId());
+
+            CacheStatistics statements = session.getStatementCacheStatistics();
+            statements.reset();
+            session.update(loaded);
+            assertEquals(0, statements.getHitCount() + statements.getMissCount(), "An unchanged entity should cause no SQL.");
+
+            Customer concurrent = entityManager.findById(Customer.class, customer.getId());
+            concurrent.setLastName("Changed Elsewhere");
+            entityManager.update(concurrent);
+
+            loaded.setName("Dirty Renamed");
+            session.update(loaded);
+        });
+
+        Customer reloaded = entityManager.findById(Customer.class, customer.getId());
+        assertEquals("Dirty Renamed", reloaded.getName());
+        assertEquals("Changed Elsewhere", reloaded.getLastName(), "Columns the session did not change should be left alone.");
+
+        entityManager.runInSession(session -> {
+            session.findById(Customer.class, customer.getId()).setLastName("Flushed");
+            session.flush();
+        });
+        assertEquals("Flushed", entityManager.findById(Customer.class, customer.getId()).getLastName());
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(22)
+    void writeBehind_shouldQueueCoalesceAndFlushInForeignKeyOrder() {
+        CacheStatistics statements = entityManager.getStatementCacheStatistics();
+
+        Order order = entityManager.inTransaction(FlushMode.COMMIT, tx -> {
+            Customer customer = new Customer();
+            customer.setName("Queued Customer");
+
+            Order queued = new Order();
+            queued.setProduct("Queued Order");
+            queued.setCustomer(customer);
+
+            statements.reset();
+            tx.save(queued);
+            tx.save(customer);
+            customer.setLastName("First");
+            tx.update(customer);
+            queued.setProduct("Queued Order v2");
+            tx.update(queued);
+            assertEquals(0, statements.getHitCount() + statements.getMissCount(), "Writes should wait for the commit.");
+            assertNull(customer.getId());
+            return queued;
+        });
+
+        Order stored = entityManager.findById(Order.class, order.getId());
+        assertEquals("Queued Order v2", stored.getProduct());
+        assertEquals("First", stored.getCustomer().getLastName(), "The parent should be inserted first with its final state.");
+
+        Long customerId = order.getCustomer().getId();
+        entityManager.runInTransaction(FlushMode.COMMIT, tx -> {
+            tx.delete(Customer.class, customerId);
+            tx.delete(Order.class, order.getId());
+            assertNull(tx.findById(Order.class, order.getId()), "Queries should see the queued deletes.");
+        });
+        assertNull(entityManager.findById(Customer.class, customerId), "Children should be deleted before parents.");
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(23)
+    void async_shouldFanOutLookupsWithinTheConcurrencyLimit() {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Customer customer = new Customer();
+            customer.setName("Async " + i);
+            customers.add(customer);
+        }
+
+        try (AsyncEntityManager async = entityManager.async()) {
+            assertEquals(DataSourceProvider.getDataSource().getMaximumPoolSize(), async.getMaxConcurrency());
+        }
+        try (AsyncEntityManager async = new EntityManager(new org.h2.jdbcx.JdbcDataSource()).async()) {
+            assertEquals(DataSourceProvider.DEFAULT_MAXIMUM_POOL_SIZE, async.getMaxConcurrency(),
+                    "Data sources that are not Hikari pools should get the default limit.");
+        }
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        try (AsyncEntityManager async = entityManager.async(3)) {
+            async.saveAll(customers).join();
+
+            List<CompletableFuture<Customer>> lookups = customers.stream()
+                    .map(c -> async.submit(em -> {
+                        peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        try {
+                            return em.findById(Customer.class, c.getId());
+                        } finally {
+                            running.decrementAndGet();
+                        }
+                    }))
+                    .toList();
+            CompletableFuture.allOf(lookups.toArray(CompletableFuture[]::new)).join();
+
+            for (int i = 0; i < customers.size(); i++) {
+                assertEquals("Async " + i, lookups.get(i).join().getName());
+            }
+            assertTrue(peak.get() <= 3, "At most 3 operations should run at once, saw " + peak.get());
+
+            async.deleteAllById(Customer.class, customers.stream().map(Customer::getId).toList()).join();
+            assertNull(async.findById(Customer.class, customers.get(0).getId()).join());
+        }
+
+        assertThrows(OrmException.class, () -> entityManager.runInSession(EntityManager::async));
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(24)
+    void rowMapping_shouldReadTypedValuesAndNullsByPosition() {
+        Payment unpaid = new Payment();
+        Payment paid = new Payment();
+        paid.setAmount(12.5);
+        entityManager.saveAll(List.of(unpaid, paid));
+
+        List<Payment> payments = entityManager.createQuery(Payment.class)
+                .in("id", List.of(unpaid.getId(), paid.getId()))
+                .orderBy("id")
+                .getResultList();
+        assertNull(payments.get(0).getAmount(), "SQL NULL should stay null for a wrapper field.");
+        assertEquals(12.5, payments.get(1).getAmount());
+
+        // The JOIN statement maps the same entity under a different label prefix
+        Order order = new Order();
+        order.setProduct("Joined");
+        order.setCustomer(entityManager.findAll(Customer.class).get(0));
+        entityManager.save(order);
+        Order joined = entityManager.findById(Order.class, order.getId(), FetchMode.JOIN);
+        assertEquals("Joined", joined.getProduct());
+        assertEquals(order.getCustomer().getName(), joined.getCustomer().getName());
+
+        entityManager.delete(Order.class, order.getId());
+        entityManager.deleteAllById(Payment.class, List.of(unpaid.getId(), paid.getId()));
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(25)
+    void primitiveColumns_shouldRoundTripWithAndWithoutSnapshots() {
+        Reading reading = new Reading();
+        reading.setSensor(7);
+        reading.setRecordedAt(1_700_000_000_000L);
+        reading.setValue(21.5);
+        reading.setValid(true);
+        reading.setQuality('A');
+        entityManager.save(reading);
+
+        // Read straight into the fields outside a session, through the boxed row inside one
+        Reading direct = entityManager.findById(Reading.class, reading.getId());
+        Reading managed = entityManager.inSession(em -> em.findById(Reading.class, reading.getId()));
+        for (Reading found : List.of(direct, managed)) {
+            assertEquals(7, found.getSensor());
+            assertEquals(1_700_000_000_000L, found.getRecordedAt());
+            assertEquals(21.5, found.getValue());
+            assertTrue(found.isValid());
+            assertNull(found.getBattery());
+            assertEquals('A', found.getQuality());
+        }
+
+        entityManager.runInSession(em -> {
+            Reading found = em.findById(Reading.class, reading.getId());
+            found.setValue(-3.25);
+            found.setValid(false);
+            found.setBattery(80);
+            found.setQuality('C');
+            em.update(found);
+        });
+        Reading updated = entityManager.findById(Reading.class, reading.getId());
+        assertEquals(-3.25, updated.getValue());
+        assertFalse(updated.isValid());
+        assertEquals(80, updated.getBattery());
+        assertEquals('C', updated.getQuality());
+        assertEquals('C', entityManager.inSession(em -> em.findById(Reading.class, reading.getId())).getQuality());
+
+        entityManager.delete(Reading.class, reading.getId());
+    }
+
+    @miniORM.annotation.Entity
+    static class Unmapped {
+        @miniORM.annotation.Id
+        private Long id;
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(26)
+    void generatedMappers_shouldMatchRuntimeMetadata() {
+        for (Class<?> clazz : List.of(Category.class, Customer.class, Order.class, Payment.class, Reading.class, Shipment.class)) {
+            EntityMetaData metaData = new EntityMetaData(clazz);
+            EntityMapper<Object> mapper = metaData.getMapper();
+            assertNotNull(mapper, "The build should generate a mapper for " + clazz.getSimpleName());
+
+            Map<StatementKind, String> statements = mapper.getStatements();
+            assertEquals(SQLGenerator.buildInsertQuery(metaData), statements.get(StatementKind.INSERT));
+            assertEquals(SQLGenerator.buildUpdateQuery(metaData), statements.get(StatementKind.UPDATE));
+            assertEquals(SQLGenerator.buildSelectById(metaData), statements.get(StatementKind.SELECT_BY_ID));
+            assertEquals(SQLGenerator.buildSelectAllQuery(metaData), statements.get(StatementKind.SELECT_ALL));
+            assertEquals(SQLGenerator.buildDeleteQuery(metaData), statements.get(StatementKind.DELETE));
+            assertEquals(SQLGenerator.buildSelectPageQuery(metaData), statements.get(StatementKind.SELECT_PAGE));
+            assertEquals(SQLGenerator.buildSelectPageAfterIdQuery(metaData), statements.get(StatementKind.SELECT_PAGE_AFTER_ID));
+        }
+
+        // Without a generated mapper, the method handle path is used
+        EntityMetaData unmapped = new EntityMetaData(Unmapped.class);
+        assertNull(unmapped.getMapper());
+        Object entity = unmapped.newInstance();
+        unmapped.setIdValue(entity, 5L);
+        assertEquals(5L, unmapped.getIdValue(entity));
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(27)
+    void entityIndex_shouldListTheEntitiesFoundAtBuildTime() throws Exception {
+        try (var index = getClass().getClassLoader().getResourceAsStream(EntityUtil.INDEX_RESOURCE)) {
+            assertNotNull(index, "The build should write the entity index.");
+            List<String> indexed = new String(index.readAllBytes(), StandardCharsets.UTF_8).lines()
+                    .filter(line -> !line.startsWith("#"))
+                    .toList();
+            assertEquals(List.of(Category.class.getName(), Customer.class.getName(), Order.class.getName(),
+                    Payment.class.getName(), Reading.class.getName(), Shipment.class.getName()), indexed);
+        }
+
+        assertEquals(Set.of(Category.class, Customer.class, Order.class, Payment.class, Reading.class, Shipment.class), EntityUtil.entityScanner());
+        assertEquals(EntityUtil.entityScanner().size(),
+                EntityUtil.findEntitiesWithRelations().size() + EntityUtil.findEntitiesWithoutRelations().size());
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(28)
+    void schemaGeneration_shouldCreateMultiLevelForeignKeyChainsInDependencyOrder() {
+        List<List<Class<?>>> waves = EntityGraph.dependencyLevels(EntityUtil.entityScanner(), EntityMetaData::new);
+        int customerWave = waveOf(waves, Customer.class);
+        int orderWave = waveOf(waves, Order.class);
+        int shipmentWave = waveOf(waves, Shipment.class);
+        assertTrue(customerWave < orderWave && orderWave < shipmentWave, "Each table should follow the tables it references.");
+
+        // The schema of @BeforeAll was created wave by wave; recreating it must drop every table with its rows
+        assertTrue(entityManager.createQuery(Customer.class).count() > 0);
+        SchemaGenerator.initializeDatabase(SchemaGenerationStrategy.CREATE);
+        for (Class<?> clazz : EntityUtil.entityScanner()) {
+            assertEquals(0, entityManager.createQuery(clazz).count(), clazz.getSimpleName() + " should be empty after CREATE.");
+        }
+
+        Customer customer = new Customer();
+        customer.setName("Grace");
+        customer.setLastName("Hopper");
+        entityManager.save(customer);
+        Order order = new Order();
+        order.setProduct("Compiler");
+        order.setCustomer(customer);
+        entityManager.save(order);
+        Shipment shipment = new Shipment();
+        shipment.setCarrier("Rail");
+        shipment.setOrder(order);
+        entityManager.save(shipment);
+
+        Shipment found = entityManager.findById(Shipment.class, shipment.getId());
+        assertEquals("Rail", found.getCarrier());
+        assertEquals(order.getId(), found.getOrder().getId());
+        assertEquals("Grace", found.getOrder().getCustomer().getName());
+
+        Shipment orphan = new Shipment();
+        orphan.setCarrier("Sea");
+        Order missing = new Order();
+        missing.setId(-1L);
+        orphan.setOrder(missing);
+        assertThrows(OrmException.class, () -> entityManager.save(orphan), "The foreign key of the third level should be enforced.");
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(29)
+    void inTransaction_rollbackInsideSessionShouldRestoreThePersistenceContext() {
+        Customer customer = new Customer();
+        customer.setName("Session Original");
+        entityManager.save(customer);
+
+        entityManager.runInSession(session -> {
+            Customer loaded = session.findById(Customer.class, customer.getId());
+            List<Customer> inserted = new ArrayList<>();
+            assertThrows(IllegalStateException.class, () -> session.runInTransaction(tx -> {
+                loaded.setName("Session Rolled Back");
+                tx.update(loaded);
+                Customer added = new Customer();
+                added.setName("Never Inserted");
+                tx.save(added);
+                inserted.add(added);
+                throw new IllegalStateException("abort");
+            }));
+
+            assertNull(session.findById(Customer.class, inserted.get(0).getId()),
+                    "Entities saved by the rolled-back transaction should not stay managed.");
+            // The rolled-back update must not count as the state of the row
+            session.update(loaded);
+        });
+
+        assertEquals("Session Rolled Back", entityManager.findById(Customer.class, customer.getId()).getName());
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(30)
+    void lruCacheRegion_shouldNotCacheRowsLoadedBeforeAnInvalidation() {
+        LruCacheRegion region = new LruCacheRegion(2, Duration.ZERO);
+
+        long staleLoad = SecondLevelCache.nextTimestamp();
+        region.invalidate(1L);
+        region.putFromLoad(1L, new Object[]{"stale"}, staleLoad);
+        assertNull(region.get(1L), "A row read before a committed write should not be cached after its invalidation.");
+
+        long freshLoad = SecondLevelCache.nextTimestamp();
+        region.putFromLoad(1L, new Object[]{"fresh"}, freshLoad);
+        assertEquals("fresh", region.get(1L)[0]);
+
+        // Only the last two invalidations are remembered, so older loads are rejected for every id
+        region.invalidate(2L);
+        region.invalidate(3L);
+        region.invalidate(4L);
+        region.putFromLoad(5L, new Object[]{"unknown"}, freshLoad);
+        assertNull(region.get(5L));
+        region.putFromLoad(5L, new Object[]{"five"}, SecondLevelCache.nextTimestamp());
+        assertEquals("five", region.get(5L)[0]);
+
+        long beforeClear = SecondLevelCache.nextTimestamp();
+        region.clear();
+        region.putFromLoad(5L, new Object[]{"cleared"}, beforeClear);
+        assertEquals(0, region.size());
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(31)
+    void inTransaction_shouldRollBackWhenAnErrorEscapes() throws Exception {
+        List<Long> inserted = new ArrayList<>();
+        assertThrows(AssertionError.class, () -> entityManager.runInTransaction(tx -> {
+            Customer customer = new Customer();
+            customer.setName("Error Customer");
+            tx.save(customer);
+            inserted.add(customer.getId());
+            throw new AssertionError("abort");
+        }));
+
+        assertNull(entityManager.findById(Customer.class, inserted.get(0)), "Pending writes should not be committed by the pool.");
+        try (var connection = DataSourceProvider.getDataSource().getConnection()) {
+            assertTrue(connection.getAutoCommit());
+        }
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(32)
+    void writeBehind_shouldInsertSelfReferencingEntitiesParentsFirst() {
+        Category leaf = entityManager.inTransaction(FlushMode.COMMIT, tx -> {
+            Category root = new Category();
+            root.setName("Root");
+            Category branch = new Category();
+            branch.setName("Branch");
+            branch.setParent(root);
+            Category child = new Category();
+            child.setName("Leaf");
+            child.setParent(branch);
+
+            tx.save(child);
+            tx.save(branch);
+            tx.save(root);
+            return child;
+        });
+
+        Category stored = entityManager.findById(Category.class, leaf.getId());
+        assertEquals("Branch", stored.getParent().getName());
+        assertEquals("Root", stored.getParent().getParent().getName());
+        assertNull(stored.getParent().getParent().getParent());
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(33)
+    void query_shouldAcceptGetterReferencesForFields() {
+        Customer customer = new Customer();
+        customer.setName("Typed Customer");
+        entityManager.save(customer);
+
+        List<Order> orders = new ArrayList<>();
+        for (String product : List.of("Typed Pen", "Typed Ink", "Typed Pad")) {
+            Order order = new Order();
+            order.setProduct(product);
+            order.setCustomer(customer);
+            orders.add(order);
+        }
+        entityManager.saveAll(orders);
+        List<Long> ids = orders.stream().map(Order::getId).toList();
+
+        List<Order> found = entityManager.createQuery(Order.class)
+                .where(Predicates.eq(Order::getCustomer, customer))
+                .and(Predicates.like(Order::getProduct, "Typed P%"))
+                .orderBy(Order::getProduct, SortDirection.DESC)
+                .getResultList();
+        assertEquals(List.of("Typed Pen", "Typed Pad"), found.stream().map(Order::getProduct).toList());
+
+        assertEquals(3, entityManager.createQuery(Order.class).in(Order::getId, ids).count());
+        assertEquals(2, entityManager.createQuery(Order.class).between(Order::getId, ids.get(0), ids.get(1)).count());
+
+        Reading reading = new Reading();
+        reading.setValid(true);
+        entityManager.save(reading);
+        assertEquals(1, entityManager.createQuery(Reading.class)
+                .where(Predicates.eq(Reading::getId, reading.getId()).and(Predicates.eq(Reading::isValid, true)))
+                .and(Predicates.isNull(Reading::getBattery))
+                .count(), "Boolean getters and null checks should resolve too.");
+        assertThrows(IllegalArgumentException.class, () -> Predicates.eq((Order o) -> o.getProduct(), "Typed Pen"),
+                "Only getter references name a field.");
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(34)
+    void lazyCollections_ofASessionShouldLoadThroughItsRunningTransaction() {
+        Customer customer = new Customer();
+        customer.setName("Lazy Transaction Customer");
+        entityManager.save(customer);
+
+        entityManager.runInSession(session -> {
+            Customer loaded = session.findById(Customer.class, customer.getId());
+            session.runInTransaction(tx -> {
+                Order order = new Order();
+                order.setProduct("Uncommitted Order");
+                order.setCustomer(loaded);
+                tx.save(order);
+                assertEquals(List.of("Uncommitted Order"), loaded.getOrders().stream().map(Order::getProduct).toList(),
+                        "The collection should be loaded on the transaction's connection.");
+            });
+        });
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(35)
+    void saveAll_shouldResetGeneratedIdsWhenItsTransactionRollsBack() {
+        Customer customer = new Customer();
+        customer.setName("Rolled Back Batch Customer");
+        entityManager.save(customer);
+        Customer missing = new Customer();
+        missing.setId(-1L);
+
+        entityManager.setBatchSize(3);
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Order order = new Order();
+            order.setProduct("Rolled Back Item " + i);
+            order.setCustomer(i < 6 ? customer : missing);
+            orders.add(order);
+        }
+        try {
+            assertThrows(OrmException.class, () -> entityManager.saveAll(orders), "The last chunk should violate its foreign key.");
+        } finally {
+            entityManager.setBatchSize(EntityManager.DEFAULT_BATCH_SIZE);
+        }
+        assertTrue(orders.stream().allMatch(order -> order.getId() == null), "Ids of rolled back chunks should be reset.");
+
+        List<Order> retried = orders.subList(0, 6);
+        assertThrows(IllegalStateException.class, () -> entityManager.runInTransaction(tx -> {
+            tx.saveAll(retried);
+            throw new IllegalStateException("Roll back after the insert");
+        }));
+        assertTrue(retried.stream().allMatch(order -> order.getId() == null), "Ids of a rolled back unit of work should be reset.");
+
+        entityManager.saveAll(retried);
+        assertTrue(retried.stream().allMatch(order -> order.getId() != null), "The orders should be saved again.");
+    }
+
+    // Compiled without the annotation processors, so it is mapped through method handles and ColumnBinder
+    @miniORM.annotation.Entity
+    static class Gauge {
+        @miniORM.annotation.Id
+        @miniORM.annotation.GeneratedValue
+        private Long id;
+        @miniORM.annotation.Column(name = "stage")
+        private int stage;
+        @miniORM.annotation.Column(name = "total")
+        private long total;
+        @miniORM.annotation.Column(name = "ratio")
+        private double ratio;
+        @miniORM.annotation.Column(name = "active")
+        private boolean active;
+        @miniORM.annotation.Column(name = "grade")
+        private char grade;
+        @miniORM.annotation.Column(name = "code")
+        private Character code;
+        @miniORM.annotation.Column(name = "label")
+        private String label;
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(36)
+    void unmappedEntities_shouldRoundTripWithoutAGeneratedMapper() throws Exception {
+        assertNull(new EntityMetaData(Gauge.class).getMapper(), "Test entities are compiled without the processors.");
+        try (var connection = DataSourceProvider.getDataSource().getConnection();
+             var statement = connection.createStatement()) {
+            for (String sql : miniORM.schemaGenerator.CreateQueryGenerator.generateTableQueries(Set.of(Gauge.class))) {
+                statement.execute(sql);
+            }
+        }
+
+        try {
+            Gauge gauge = new Gauge();
+            gauge.stage = 3;
+            gauge.total = 9_000_000_000L;
+            gauge.ratio = 0.75;
+            gauge.active = true;
+            gauge.grade = 'B';
+            gauge.label = "Boiler";
+            entityManager.save(gauge);
+            assertNotNull(gauge.id);
+
+            // Read straight into the fields outside a session, through the boxed row inside one
+            Gauge direct = entityManager.findById(Gauge.class, gauge.id);
+            Gauge managed = entityManager.inSession(em -> em.findById(Gauge.class, gauge.id));
+            for (Gauge found : List.of(direct, managed)) {
+                assertEquals(3, found.stage);
+                assertEquals(9_000_000_000L, found.total);
+                assertEquals(0.75, found.ratio);
+                assertTrue(found.active);
+                assertEquals('B', found.grade);
+                assertNull(found.code);
+                assertEquals("Boiler", found.label);
+            }
+
+            entityManager.runInSession(em -> {
+                Gauge found = em.findById(Gauge.class, gauge.id);
+                found.stage = 4;
+                found.grade = 'C';
+                found.code = 'x';
+                found.active = false;
+                em.update(found);
+            });
+            Gauge updated = entityManager.findById(Gauge.class, gauge.id);
+            assertEquals(4, updated.stage);
+            assertEquals('C', updated.grade);
+            assertEquals('x', updated.code);
+            assertFalse(updated.active);
+
+            Gauge other = new Gauge();
+            other.label = "Pump";
+            entityManager.saveAll(List.of(other));
+            updated.label = "Boiler 2";
+            entityManager.updateAll(List.of(updated));
+            assertEquals(List.of("Boiler 2", "Pump"),
+                    entityManager.findAll(Gauge.class).stream().map(found -> found.label).sorted().toList());
+
+            // Binders read every column type, not only the primitive ones RowMapping reads through them
+            EntityMetaData metaData = new EntityMetaData(Gauge.class);
+            Gauge read = (Gauge) metaData.newInstance();
+            try (var connection = DataSourceProvider.getDataSource().getConnection();
+                 var statement = connection.prepareStatement("SELECT label, code, grade FROM GAUGE WHERE id = ?")) {
+                statement.setLong(1, updated.id);
+                try (var rs = statement.executeQuery()) {
+                    assertTrue(rs.next());
+                    metaData.getBinder(Gauge.class.getDeclaredField("label")).read(rs, 1, read);
+                    metaData.getBinder(Gauge.class.getDeclaredField("code")).read(rs, 2, read);
+                    metaData.getBinder(Gauge.class.getDeclaredField("grade")).read(rs, 3, read);
+                }
+            }
+            assertEquals("Boiler 2", read.label);
+            assertEquals('x', read.code);
+            assertEquals('C', read.grade);
+
+            entityManager.delete(Gauge.class, other.id);
+            assertNull(entityManager.findById(Gauge.class, other.id));
+        } finally {
+            try (var connection = DataSourceProvider.getDataSource().getConnection();
+                 var statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS GAUGE");
+            }
+        }
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(37)
+    void writeBehind_shouldCoalesceUpdatesOfOneRowAcrossInstances() {
+        Customer customer = new Customer();
+        customer.setName("Two Copies Customer");
+        entityManager.save(customer);
+        Customer first = entityManager.findById(Customer.class, customer.getId());
+        Customer second = entityManager.findById(Customer.class, customer.getId());
+        assertNotSame(first, second);
+
+        AtomicInteger updates = new AtomicInteger();
+        EntityManager counted = new EntityManager(countingUpdates(DataSourceProvider.getDataSource(), updates));
+        counted.setStatementCacheSize(0);
+        counted.runInTransaction(FlushMode.COMMIT, tx -> {
+            first.setLastName("First Copy");
+            tx.update(first);
+            second.setLastName("Second Copy");
+            tx.update(second);
+        });
+
+        assertEquals(1, updates.get(), "Both copies hold one row, which should be updated once.");
+        assertEquals("Second Copy", entityManager.findById(Customer.class, customer.getId()).getLastName(),
+                "The copy updated last should be written.");
+    }
+
+    /**
+     * Wraps the data source so every UPDATE row sent, alone or in a batch, is counted.
+     */
+    private static javax.sql.DataSource countingUpdates(javax.sql.DataSource dataSource, AtomicInteger updates) {
+        return proxy(javax.sql.DataSource.class, dataSource, (method, args, result) -> method.getName().equals("getConnection")
+                ? countingUpdates((java.sql.Connection) result, updates)
+                : result);
+    }
+
+    private static java.sql.Connection countingUpdates(java.sql.Connection connection, AtomicInteger updates) {
+        return proxy(java.sql.Connection.class, connection, (method, args, result) ->
+                method.getName().equals("prepareStatement") && ((String) args[0]).startsWith("UPDATE")
+                        ? countingUpdates((java.sql.PreparedStatement) result, updates)
+                        : result);
+    }
+
+    private static java.sql.PreparedStatement countingUpdates(java.sql.PreparedStatement statement, AtomicInteger updates) {
+        return proxy(java.sql.PreparedStatement.class, statement, (method, args, result) -> {
+            if (method.getName().equals("addBatch") || method.getName().equals("executeUpdate")) {
+                updates.incrementAndGet();
+            }
+            return result;
+        });
+    }
+
+    @FunctionalInterface
+    private interface ResultDecorator {
+        Object decorate(java.lang.reflect.Method method, Object[] args, Object result);
+    }
+
+    private static <T> T proxy(Class<T> type, T target, ResultDecorator decorator) {
+        return type.cast(java.lang.reflect.Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+            try {
+                return decorator.decorate(method, args, method.invoke(target, args));
+            } catch (java.lang.reflect.InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }));
+    }
+
+    private static int waveOf(List<List<Class<?>>> waves, Class<?> clazz) {
+        for (int i = 0; i < waves.size(); i++) {
+            if (waves.get(i).contains(clazz)) {
+                return i;
+            }
+        }
+        throw new AssertionError(clazz.getSimpleName() + " is in no wave");
+    }
 }